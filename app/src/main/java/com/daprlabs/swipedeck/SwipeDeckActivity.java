@@ -1,16 +1,21 @@
 package com.daprlabs.swipedeck;
 
+import com.daprlabs.cardstack.DecodeAheadCache;
+import com.daprlabs.cardstack.SectorSwipeClassifier;
 import com.daprlabs.cardstack.SwipeDeck;
 import com.squareup.picasso.Picasso;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -24,6 +29,7 @@ public class SwipeDeckActivity extends AppCompatActivity {
 
     private SwipeDeck cardStack;
     private SwipeDeckAdapter adapter;
+    private DecodeAheadCache<Bitmap> imageCache;
     private ArrayList<String> testData;
     public boolean swipeable;
     private View leftImage;
@@ -44,9 +50,32 @@ public class SwipeDeckActivity extends AppCompatActivity {
         testData.add("4");
 
         adapter = new SwipeDeckAdapter(testData, this);
-        cardStack.setAdapter(adapter);
+        cardStack.setViewHolderAdapter(adapter);
 
-        cardStack.setEventCallback(new SwipeDeck.SwipeEventCallback() {
+        //decode the images of the next cards while the top one is on screen
+        imageCache = new DecodeAheadCache<>(new DecodeAheadCache.Decoder<Bitmap>() {
+            @Override
+            public Bitmap decode(int position) {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inPreferredConfig = Bitmap.Config.RGB_565;
+                return BitmapFactory.decodeResource(getResources(), R.drawable.food, options);
+            }
+
+            @Override
+            public int sizeOf(Bitmap value) {
+                return value.getByteCount();
+            }
+        }, Runtime.getRuntime().maxMemory() / 16, AsyncTask.THREAD_POOL_EXECUTOR);
+        cardStack.setContentPreloader(imageCache, 4);
+
+        //up to super like, down to skip
+        SectorSwipeClassifier classifier = new SectorSwipeClassifier(
+                ViewConfiguration.get(this).getScaledMinimumFlingVelocity());
+        classifier.setSectorAngle(SwipeDeck.SWIPE_UP, 30);
+        classifier.setSectorAngle(SwipeDeck.SWIPE_DOWN, 30);
+        cardStack.setSwipeClassifier(classifier);
+
+        cardStack.setEventCallback(new SwipeDeck.DirectionalSwipeEventCallback() {
 
             @Override
             public void onCardSwipedLeft(int position) {
@@ -58,6 +87,16 @@ public class SwipeDeckActivity extends AppCompatActivity {
                 Log.i(TAG, "card was swiped right, position in adapter: " + position);
             }
 
+            @Override
+            public void onCardSwipedUp(int position) {
+                Log.i(TAG, "card was swiped up, position in adapter: " + position);
+            }
+
+            @Override
+            public void onCardSwipedDown(int position) {
+                Log.i(TAG, "card was swiped down, position in adapter: " + position);
+            }
+
             @Override
             public void onCardsDepleted() {
                 Log.i(TAG, "no more cards");
@@ -75,33 +114,33 @@ public class SwipeDeckActivity extends AppCompatActivity {
 
             }
         });
-//        Button btn = (Button) findViewById(R.id.button);
-//        btn.setOnClickListener(new View.OnClickListener() {
-//            @Override
-//            public void onClick(View v) {
-//                cardStack.swipeTopCardLeft(180);
-//
-//            }
-//        });
-//        Button btn2 = (Button) findViewById(R.id.button2);
-//        btn2.setOnClickListener(new View.OnClickListener() {
-//            @Override
-//            public void onClick(View v) {
-//                cardStack.swipeTopCardRight(180);
-//            }
-//        });
+        Button btn = (Button) findViewById(R.id.button);
+        btn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                cardStack.swipeTopCard(SwipeDeck.SWIPE_LEFT, 180);
+
+            }
+        });
+        Button btn2 = (Button) findViewById(R.id.button2);
+        btn2.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                cardStack.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 180);
+            }
+        });
 
         Button btn3 = (Button) findViewById(R.id.button3);
         btn3.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 testData.add("a sample string.");
-                adapter.notifyDataSetChanged();
+                adapter.notifyItemInserted(testData.size() - 1);
             }
         });
     }
 
-    public class SwipeDeckAdapter extends BaseAdapter {
+    public class SwipeDeckAdapter extends SwipeDeck.Adapter<SwipeDeckAdapter.CardViewHolder> {
 
         private List<String> data;
         private Context context;
@@ -112,36 +151,38 @@ public class SwipeDeckActivity extends AppCompatActivity {
         }
 
         @Override
-        public int getCount() {
+        public int getItemCount() {
             return data.size();
         }
 
         @Override
-        public Object getItem(int position) {
-            return data.get(position);
+        public CardViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            LayoutInflater inflater = getLayoutInflater();
+            return new CardViewHolder(inflater.inflate(R.layout.test_card2, parent, false));
         }
 
         @Override
-        public long getItemId(int position) {
-            return position;
+        public void onBindViewHolder(CardViewHolder holder, int position) {
+            Bitmap image = imageCache.get(position);
+            if (image != null) {
+                Picasso.with(context).cancelRequest(holder.imageView);
+                holder.imageView.setImageBitmap(image);
+            } else {
+                Picasso.with(context).load(R.drawable.food).fit().centerCrop().into(holder.imageView);
+            }
+            holder.textView.setText(data.get(position));
         }
 
-        @Override
-        public View getView(final int position, View convertView, ViewGroup parent) {
+        public class CardViewHolder extends SwipeDeck.ViewHolder {
 
-            View v = convertView;
-            if (v == null) {
-                LayoutInflater inflater = getLayoutInflater();
-                // normally use a viewholder
-                v = inflater.inflate(R.layout.test_card2, parent, false);
-            }
-            ImageView imageView = (ImageView) v.findViewById(R.id.offer_image);
-            Picasso.with(context).load(R.drawable.food).fit().centerCrop().into(imageView);
-            TextView textView = (TextView) v.findViewById(R.id.sample_text);
-            String item = (String)getItem(position);
-            textView.setText(item);
+            final ImageView imageView;
+            final TextView textView;
 
-            return v;
+            public CardViewHolder(View itemView) {
+                super(itemView);
+                imageView = (ImageView) itemView.findViewById(R.id.offer_image);
+                textView = (TextView) itemView.findViewById(R.id.sample_text);
+            }
         }
     }
 }
@@ -0,0 +1,68 @@
+package com.daprlabs.cardstack;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * Follows a running animation frame by frame and records its duration and the number of
+ * frames it dropped. Needs Choreographer, so only create it on Jelly Bean and up.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+/*package*/ class AnimationFrameTracker implements Choreographer.FrameCallback {
+
+    private final SwipeDeckMetrics metrics;
+    private final Histogram durations;
+    private final Histogram droppedFrames;
+
+    private boolean running;
+    private long startNanos;
+    private long lastFrameNanos;
+    private int dropped;
+
+    public AnimationFrameTracker(SwipeDeckMetrics metrics, Histogram durations, Histogram droppedFrames) {
+        this.metrics = metrics;
+        this.durations = durations;
+        this.droppedFrames = droppedFrames;
+    }
+
+    /**
+     * Start following a new animation, an animation that is still being followed is finished first.
+     */
+    public void start() {
+        if (running) {
+            stop();
+        }
+        running = true;
+        startNanos = System.nanoTime();
+        lastFrameNanos = 0;
+        dropped = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Finish following the animation and record it.
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        durations.record(System.nanoTime() - startNanos);
+        droppedFrames.record(dropped);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (lastFrameNanos != 0) {
+            dropped += SwipeDeckMetrics.droppedFrames(frameTimeNanos - lastFrameNanos,
+                    metrics.getFrameIntervalNanos());
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
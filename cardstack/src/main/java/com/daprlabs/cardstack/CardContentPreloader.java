@@ -0,0 +1,24 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Gets the content of cards, images mostly, ready before the adapter binds them, see
+ * {@link SwipeDeck#setContentPreloader(CardContentPreloader, int)} and {@link DecodeAheadCache}.
+ */
+public interface CardContentPreloader {
+    /**
+     * Called on the UI thread whenever the top of the deck moves. Implementations should do
+     * their work off the UI thread.
+     *
+     * @param topPosition adapter position of the top card
+     * @param count       number of positions from the top one on that the deck will show next,
+     *                    all of them are in the adapter
+     */
+    void preload(int topPosition, int count);
+
+    /**
+     * Called on the UI thread when the adapter's data changed at or before the positions last
+     * preloaded, whatever was loaded for a position may belong to another item now. The deck
+     * calls {@link #preload(int, int)} for the positions it shows right after.
+     */
+    void invalidate();
+}
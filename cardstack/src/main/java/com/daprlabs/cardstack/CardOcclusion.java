@@ -0,0 +1,258 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Works out how much of each card on the deck can be seen past the cards above it, so the deck
+ * only draws that part and skips the cards that are covered completely. Cards are given bottom
+ * first with their frame and transform, as on a View. The exposed part of a card is kept as a
+ * single rectangle in the coordinates of the deck: a card above cuts it down only where it spans
+ * the whole rectangle, so the result is never smaller than what can actually be seen.
+ * <p>
+ * A card above counts with the largest upright rectangle that fits in it after its rotation and
+ * scale, cut down by the corner radius at its top and bottom edges. Cards that aren't opaque
+ * don't cover anything. Everything is kept in primitive arrays that only grow.
+ */
+/*package*/ final class CardOcclusion {
+
+    /**
+     * A side of the exposed rectangle that no card cuts down, far enough out for any screen.
+     */
+    public static final float UNBOUNDED = 1 << 20;
+
+    private static final int LEFT = 0;
+    private static final int TOP = 1;
+    private static final int RIGHT = 2;
+    private static final int BOTTOM = 3;
+
+    private int count;
+    private float[] frames = new float[0];
+    private float[] transforms = new float[0];
+    private boolean[] opaque = new boolean[0];
+    //4 sides per card: the upright bounds after the transform, what covers of the card and what
+    //is left of it to see
+    private float[] bounds = new float[0];
+    private float[] covers = new float[0];
+    private float[] exposed = new float[0];
+    private boolean[] trimmed = new boolean[0];
+
+    /**
+     * Start over with the given number of cards.
+     */
+    public void reset(int count) {
+        this.count = count;
+        if (opaque.length < count) {
+            frames = new float[count * 4];
+            transforms = new float[count * 7];
+            opaque = new boolean[count];
+            bounds = new float[count * 4];
+            covers = new float[count * 4];
+            exposed = new float[count * 4];
+            trimmed = new boolean[count * 4];
+        }
+        for (int i = 0; i < count; ++i) {
+            setTransform(i, 0, 0, 0, 1, 1, 0, 0);
+        }
+    }
+
+    /**
+     * @param index  0 for the bottom card
+     * @param opaque whether the card hides what is underneath it
+     */
+    public void setCard(int index, float left, float top, float right, float bottom, boolean opaque) {
+        int i = index * 4;
+        frames[i + LEFT] = left;
+        frames[i + TOP] = top;
+        frames[i + RIGHT] = right;
+        frames[i + BOTTOM] = bottom;
+        this.opaque[index] = opaque;
+    }
+
+    /**
+     * Transform of a card as on a View, the pivot is relative to the card's frame.
+     */
+    public void setTransform(int index, float translationX, float translationY, float rotation,
+                             float scaleX, float scaleY, float pivotX, float pivotY) {
+        int i = index * 7;
+        transforms[i] = translationX;
+        transforms[i + 1] = translationY;
+        transforms[i + 2] = rotation;
+        transforms[i + 3] = scaleX;
+        transforms[i + 4] = scaleY;
+        transforms[i + 5] = pivotX;
+        transforms[i + 6] = pivotY;
+    }
+
+    /**
+     * Work out what can be seen of every card.
+     *
+     * @param cornerRadius of the cards, the corners of a card above don't cover anything
+     */
+    public void compute(float cornerRadius) {
+        for (int index = 0; index < count; ++index) {
+            computeRect(index, 0, bounds, false);
+            computeRect(index, cornerRadius, covers, true);
+        }
+        for (int index = 0; index < count; ++index) {
+            computeExposed(index);
+        }
+    }
+
+    /**
+     * The rectangle of a card after its transform: upright bounds around it, or the largest
+     * upright rectangle inside it, empty if none fits.
+     */
+    private void computeRect(int index, float inset, float[] rects, boolean inside) {
+        int f = index * 4;
+        int t = index * 7;
+        float width = frames[f + RIGHT] - frames[f + LEFT];
+        float height = frames[f + BOTTOM] - frames[f + TOP];
+        float scaleX = transforms[t + 3];
+        float scaleY = transforms[t + 4];
+        float pivotX = transforms[t + 5];
+        float pivotY = transforms[t + 6];
+        double radians = Math.toRadians(transforms[t + 2]);
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+
+        //where the center of the card ends up, it is rotated and scaled around the pivot
+        float fromPivotX = scaleX * (width / 2 - pivotX);
+        float fromPivotY = scaleY * (height / 2 - pivotY);
+        float centerX = frames[f + LEFT] + transforms[t] + pivotX + cos * fromPivotX - sin * fromPivotY;
+        float centerY = frames[f + TOP] + transforms[t + 1] + pivotY + sin * fromPivotX + cos * fromPivotY;
+
+        float halfWidth = Math.abs(scaleX) * width / 2;
+        float halfHeight = Math.abs(scaleY) * (height / 2 - inset);
+        float c = Math.abs(cos);
+        float s = Math.abs(sin);
+        float extentX;
+        float extentY;
+        if (halfWidth <= 0 || halfHeight <= 0) {
+            extentX = -1;
+            extentY = -1;
+        } else if (!inside) {
+            extentX = halfWidth * c + halfHeight * s;
+            extentY = halfWidth * s + halfHeight * c;
+        } else {
+            //the corners of the upright rectangle touch the sides of the rotated one, past 45
+            //degrees the card is closer to lying on its side
+            boolean onSide = s > c;
+            float along = onSide ? s : c;
+            float across = onSide ? c : s;
+            float alongX = onSide ? halfHeight : halfWidth;
+            float alongY = onSide ? halfWidth : halfHeight;
+            float det = along * along - across * across;
+            extentX = det > 0 ? (alongX * along - alongY * across) / det : -1;
+            extentY = det > 0 ? (alongY * along - alongX * across) / det : -1;
+        }
+        if (extentX <= 0 || extentY <= 0) {
+            rects[f + LEFT] = centerX;
+            rects[f + TOP] = centerY;
+            rects[f + RIGHT] = centerX;
+            rects[f + BOTTOM] = centerY;
+            return;
+        }
+        rects[f + LEFT] = centerX - extentX;
+        rects[f + TOP] = centerY - extentY;
+        rects[f + RIGHT] = centerX + extentX;
+        rects[f + BOTTOM] = centerY + extentY;
+    }
+
+    private void computeExposed(int index) {
+        int e = index * 4;
+        System.arraycopy(bounds, e, exposed, e, 4);
+        trimmed[e + LEFT] = false;
+        trimmed[e + TOP] = false;
+        trimmed[e + RIGHT] = false;
+        trimmed[e + BOTTOM] = false;
+        //trimming by one card can let another card span what is left, go again until nothing changes
+        boolean changed = true;
+        while (changed && isExposed(index)) {
+            changed = false;
+            for (int above = index + 1; above < count && isExposed(index); ++above) {
+                if (opaque[above]) {
+                    changed |= trim(e, above * 4);
+                }
+            }
+        }
+    }
+
+    private boolean trim(int e, int c) {
+        float left = exposed[e + LEFT];
+        float top = exposed[e + TOP];
+        float right = exposed[e + RIGHT];
+        float bottom = exposed[e + BOTTOM];
+        boolean spansWidth = covers[c + LEFT] <= left && covers[c + RIGHT] >= right;
+        boolean spansHeight = covers[c + TOP] <= top && covers[c + BOTTOM] >= bottom;
+        boolean changed = false;
+        if (spansWidth) {
+            if (covers[c + TOP] <= top && covers[c + BOTTOM] > top) {
+                changed = setSide(e, TOP, Math.min(covers[c + BOTTOM], bottom));
+            } else if (covers[c + BOTTOM] >= bottom && covers[c + TOP] < bottom) {
+                changed = setSide(e, BOTTOM, Math.max(covers[c + TOP], top));
+            }
+        } else if (spansHeight) {
+            if (covers[c + LEFT] <= left && covers[c + RIGHT] > left) {
+                changed = setSide(e, LEFT, Math.min(covers[c + RIGHT], right));
+            } else if (covers[c + RIGHT] >= right && covers[c + LEFT] < right) {
+                changed = setSide(e, RIGHT, Math.max(covers[c + LEFT], left));
+            }
+        }
+        return changed;
+    }
+
+    private boolean setSide(int e, int side, float value) {
+        if (exposed[e + side] == value) {
+            return false;
+        }
+        exposed[e + side] = value;
+        trimmed[e + side] = true;
+        return true;
+    }
+
+    /**
+     * @return whether any part of the card can be seen
+     */
+    public boolean isExposed(int index) {
+        int e = index * 4;
+        return exposed[e + RIGHT] > exposed[e + LEFT] && exposed[e + BOTTOM] > exposed[e + TOP];
+    }
+
+    /**
+     * @return whether no card above covers any of the card, it doesn't need a clip
+     */
+    public boolean isFullyExposed(int index) {
+        int e = index * 4;
+        return !trimmed[e + LEFT] && !trimmed[e + TOP] && !trimmed[e + RIGHT] && !trimmed[e + BOTTOM];
+    }
+
+    /**
+     * The clip for drawing a card: the sides of what can be seen of it that a card above cut
+     * down, {@link #UNBOUNDED} for the others so nothing the card draws past its frame (its
+     * shadow for one) is cut off there.
+     */
+    public float getClipLeft(int index) {
+        return trimmed[index * 4 + LEFT] ? exposed[index * 4 + LEFT] : -UNBOUNDED;
+    }
+
+    public float getClipTop(int index) {
+        return trimmed[index * 4 + TOP] ? exposed[index * 4 + TOP] : -UNBOUNDED;
+    }
+
+    public float getClipRight(int index) {
+        return trimmed[index * 4 + RIGHT] ? exposed[index * 4 + RIGHT] : UNBOUNDED;
+    }
+
+    public float getClipBottom(int index) {
+        return trimmed[index * 4 + BOTTOM] ? exposed[index * 4 + BOTTOM] : UNBOUNDED;
+    }
+
+    /**
+     * @return area of the card that gets drawn, in square pixels
+     */
+    public float getDrawnArea(int index) {
+        if (!isExposed(index)) {
+            return 0;
+        }
+        int e = index * 4;
+        return (exposed[e + RIGHT] - exposed[e + LEFT]) * (exposed[e + BOTTOM] - exposed[e + TOP]);
+    }
+}
@@ -0,0 +1,85 @@
+package com.daprlabs.cardstack;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * A picture of a swiped card that stands in for it during its exit animation, so the card
+ * itself can go back to the pool right away. It is never added to the deck: it only keeps a
+ * frame and the transform properties, the deck draws it with {@link #draw(Canvas, Paint)}.
+ * Being a View it is animated like any card, see {@link DeckAnimator}.
+ */
+/*package*/ final class CardSnapshot extends View {
+
+    private final Canvas captureCanvas = new Canvas();
+    private Bitmap bitmap;
+
+    public CardSnapshot(Context context) {
+        super(context);
+    }
+
+    /**
+     * Draw the card into the snapshot and take over its frame and transform.
+     * The bitmap of an earlier capture is reused if the card has the same size.
+     */
+    public void capture(View card) {
+        int width = card.getWidth();
+        int height = card.getHeight();
+        if (bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            release();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        captureCanvas.setBitmap(bitmap);
+        card.draw(captureCanvas);
+        captureCanvas.setBitmap(null);
+
+        layout(card.getLeft(), card.getTop(), card.getRight(), card.getBottom());
+        setPivotX(card.getPivotX());
+        setPivotY(card.getPivotY());
+        setTranslationX(card.getTranslationX());
+        setTranslationY(card.getTranslationY());
+        setRotation(card.getRotation());
+        setScaleX(card.getScaleX());
+        setScaleY(card.getScaleY());
+        setAlpha(card.getAlpha());
+    }
+
+    /**
+     * Draw the picture where the card would be with the current transform.
+     *
+     * @param paint used for the alpha, the snapshot doesn't keep one of its own so every
+     *              snapshot of a deck can share it
+     */
+    public void draw(Canvas canvas, Paint paint) {
+        int alpha = Math.round(getAlpha() * 255);
+        if (bitmap == null || alpha <= 0) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(getLeft(), getTop());
+        canvas.concat(getMatrix());
+        paint.setAlpha(alpha);
+        canvas.drawBitmap(bitmap, 0, 0, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    public boolean hasPicture() {
+        return bitmap != null;
+    }
+
+    /**
+     * Give up the bitmap, the snapshot can still capture another card afterwards.
+     */
+    public void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Animates the transforms of every card on a deck from a single frame callback. Each card gets
+ * a slot and each animated property of a slot is a channel, the state of all channels lives in
+ * flat primitive arrays so a frame costs the same no matter how many cards are moving, and
+ * nothing is allocated once the arrays have grown to the size of the deck.
+ * <p>
+ * An animation is started with {@link #animate} followed by {@link #to} / {@link #by} for each
+ * property, like a ViewPropertyAnimator. A property that is already animating is taken over by
+ * the newer animation. Starting an animation with a listener on a card whose previous listener
+ * hasn't been called yet cancels that listener.
+ * <p>
+ * Besides timed animations a property can follow a critically damped spring ({@link #springTo})
+ * or keep a velocity that friction slows down ({@link #fling}), see {@link DeckPhysics}.
+ * A spring that takes over a moving property starts with its velocity.
+ * <p>
+ * Pure Java, the deck supplies the frame times and the way properties are read and written.
+ */
+/*package*/ class DeckAnimator<T> {
+
+    public static final int TRANSLATION_X = 0;
+    public static final int TRANSLATION_Y = 1;
+    public static final int ROTATION = 2;
+    public static final int SCALE_X = 3;
+    public static final int SCALE_Y = 4;
+    public static final int ALPHA = 5;
+    /*package*/ static final int PROPERTY_COUNT = 6;
+
+    //interpolators are shared constants, an animation only stores which one it uses
+    public static final int LINEAR = 0;
+    public static final int ACCELERATE_DECELERATE = 1;
+    public static final int OVERSHOOT = 2;
+    /*package*/ static final float OVERSHOOT_TENSION = 1.5f;
+
+    //how a channel moves
+    private static final int MODE_TWEEN = 0;
+    private static final int MODE_SPRING = 1;
+    private static final int MODE_FLING = 2;
+
+    //a spring is at rest once it is this close to its target and slower than 10x this per second
+    private static final float[] REST_THRESHOLDS = {0.5f, 0.5f, 0.1f, 0.001f, 0.001f, 0.001f};
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final float NANOS_PER_SECOND = 1e9f;
+    //the animation starts with the first frame it is part of
+    private static final long NOT_STARTED = -1;
+
+    public interface Properties<T> {
+        float get(T card, int property);
+
+        void set(T card, int property, float value);
+    }
+
+    public interface Listener<T> {
+        /**
+         * @param finished false if the animation was canceled or another animation took over
+         *                 one of its properties
+         */
+        void onAnimationEnd(T card, boolean finished);
+    }
+
+    private final Properties<T> properties;
+
+    //per slot
+    private Object[] cards;
+    private Object[] listeners;
+    private int[] listenerGenerations;
+    private boolean[] interrupted;
+    private int slotCount;
+
+    //per channel, the channel of a property of a slot is slot * PROPERTY_COUNT + property
+    private float[] from;
+    private float[] to;
+    private long[] startNanos;
+    private long[] delayNanos;
+    private long[] durationNanos;
+    private int[] interpolators;
+    private int[] modes;
+    //velocity at the start and on the last frame, and the spring frequency or friction
+    private float[] startVelocities;
+    private float[] velocities;
+    private float[] physics;
+    //the animation a channel belongs to, 0 when the channel is idle
+    private int[] generations;
+
+    //the animation being set up by to() / by()
+    private int generation;
+    private int requestSlot = -1;
+    private long requestDuration;
+    private long requestDelay;
+    private int requestInterpolator;
+
+    //listeners due at the end of a frame, called once the frame is done with the arrays
+    private boolean inFrame;
+    private boolean dispatching;
+    private Object[] endedCards = new Object[4];
+    private Object[] endedListeners = new Object[4];
+    private boolean[] endedFinished = new boolean[4];
+    private int endedCount;
+
+    public DeckAnimator(Properties<T> properties) {
+        this.properties = properties;
+        allocate(4);
+    }
+
+    private void allocate(int slots) {
+        cards = grow(cards, slots);
+        listeners = grow(listeners, slots);
+        listenerGenerations = grow(listenerGenerations, slots);
+        interrupted = grow(interrupted, slots);
+        int channels = slots * PROPERTY_COUNT;
+        from = grow(from, channels);
+        to = grow(to, channels);
+        startNanos = grow(startNanos, channels);
+        delayNanos = grow(delayNanos, channels);
+        durationNanos = grow(durationNanos, channels);
+        interpolators = grow(interpolators, channels);
+        modes = grow(modes, channels);
+        startVelocities = grow(startVelocities, channels);
+        velocities = grow(velocities, channels);
+        physics = grow(physics, channels);
+        generations = grow(generations, channels);
+    }
+
+    /**
+     * Start describing an animation of a card, properties are added with {@link #to} and {@link #by}.
+     *
+     * @param listener told when every property of this animation is done, may be null
+     */
+    public DeckAnimator<T> animate(T card, long durationMillis, long startDelayMillis, int interpolator,
+                                   Listener<T> listener) {
+        int slot = slotOf(card);
+        if (slot < 0) {
+            slot = addSlot(card);
+        }
+        int current = nextGeneration();
+        if (listener != null) {
+            //only one listener per card, the previous animation lost its card
+            if (listeners[slot] != null) {
+                endListener(slot, false);
+            }
+            listeners[slot] = listener;
+            listenerGenerations[slot] = current;
+            interrupted[slot] = false;
+        }
+        requestSlot = slot;
+        requestDuration = durationMillis * NANOS_PER_MILLI;
+        requestDelay = startDelayMillis * NANOS_PER_MILLI;
+        requestInterpolator = interpolator;
+        return this;
+    }
+
+    /**
+     * Animate a property of the card of the last {@link #animate} call to the given value.
+     */
+    public DeckAnimator<T> to(int property, float value) {
+        startChannel(property, value, MODE_TWEEN, 0, 0);
+        return this;
+    }
+
+    /**
+     * Move a property of the card of the last {@link #animate} call to the given value on a
+     * critically damped spring. The duration and interpolator of the animation don't apply,
+     * the spring takes as long as it takes and keeps the velocity the property already had.
+     *
+     * @param stiffness see {@link DeckPhysics#RESET_STIFFNESS}
+     */
+    public DeckAnimator<T> springTo(int property, float value, float stiffness) {
+        int channel = requestSlot * PROPERTY_COUNT + property;
+        float velocity = generations[channel] != 0 ? velocities[channel] : 0;
+        startChannel(property, value, MODE_SPRING, velocity, DeckPhysics.springFrequency(stiffness));
+        return this;
+    }
+
+    /**
+     * Keep a property of the card of the last {@link #animate} call moving at the given
+     * velocity, slowed down by friction, for the duration of the animation.
+     *
+     * @param velocity units per second
+     * @param friction see {@link DeckPhysics#FLING_FRICTION}
+     */
+    public DeckAnimator<T> fling(int property, float velocity, float friction) {
+        startChannel(property, 0, MODE_FLING, velocity, friction);
+        return this;
+    }
+
+    private void startChannel(int property, float value, int mode, float velocity, float physics) {
+        int slot = requestSlot;
+        int channel = slot * PROPERTY_COUNT + property;
+        int owner = generations[channel];
+        if (owner != 0 && owner == listenerGenerations[slot] && owner != generation) {
+            interrupted[slot] = true;
+        }
+        @SuppressWarnings("unchecked")
+        T card = (T) cards[slot];
+        from[channel] = properties.get(card, property);
+        to[channel] = value;
+        startNanos[channel] = NOT_STARTED;
+        delayNanos[channel] = requestDelay;
+        durationNanos[channel] = requestDuration;
+        interpolators[channel] = requestInterpolator;
+        modes[channel] = mode;
+        startVelocities[channel] = velocity;
+        velocities[channel] = velocity;
+        this.physics[channel] = physics;
+        generations[channel] = generation;
+    }
+
+    /**
+     * Animate a property of the card of the last {@link #animate} call by the given amount.
+     */
+    public DeckAnimator<T> by(int property, float delta) {
+        @SuppressWarnings("unchecked")
+        T card = (T) cards[requestSlot];
+        return to(property, properties.get(card, property) + delta);
+    }
+
+    /**
+     * Stop every animation of a card where it is, its listener is told it didn't finish.
+     */
+    public void cancel(T card) {
+        int slot = slotOf(card);
+        if (slot < 0) {
+            return;
+        }
+        int channel = slot * PROPERTY_COUNT;
+        for (int p = 0; p < PROPERTY_COUNT; ++p) {
+            generations[channel + p] = 0;
+        }
+        if (listeners[slot] != null) {
+            endListener(slot, false);
+        }
+        if (!inFrame) {
+            compact();
+        }
+    }
+
+    /**
+     * @return whether any property of the card is animating or waiting for its start delay
+     */
+    public boolean isAnimating(T card) {
+        int slot = slotOf(card);
+        return slot >= 0 && isActive(slot);
+    }
+
+    /**
+     * @return velocity of a property in units per second as of the last frame, 0 unless it
+     * moves on a spring or a fling
+     */
+    public float getVelocity(T card, int property) {
+        int slot = slotOf(card);
+        if (slot < 0) {
+            return 0;
+        }
+        int channel = slot * PROPERTY_COUNT + property;
+        return generations[channel] != 0 ? velocities[channel] : 0;
+    }
+
+    public boolean hasRunningAnimations() {
+        return slotCount > 0;
+    }
+
+    /**
+     * @return number of animations started so far, for tests
+     */
+    /*package*/ int getAnimationCount() {
+        return generation;
+    }
+
+    /**
+     * Move every running animation to the given frame time.
+     *
+     * @return whether another frame is needed
+     */
+    public boolean doFrame(long frameTimeNanos) {
+        inFrame = true;
+        for (int slot = 0; slot < slotCount; ++slot) {
+            @SuppressWarnings("unchecked")
+            T card = (T) cards[slot];
+            int base = slot * PROPERTY_COUNT;
+            boolean listening = listeners[slot] != null;
+            boolean listenerDone = listening;
+            int listenerGeneration = listenerGenerations[slot];
+            for (int p = 0; p < PROPERTY_COUNT; ++p) {
+                int channel = base + p;
+                int owner = generations[channel];
+                if (owner == 0) {
+                    continue;
+                }
+                if (startNanos[channel] == NOT_STARTED) {
+                    startNanos[channel] = frameTimeNanos;
+                }
+                long elapsed = frameTimeNanos - startNanos[channel] - delayNanos[channel];
+                if (elapsed < 0) {
+                    if (owner == listenerGeneration) {
+                        listenerDone = false;
+                    }
+                    continue;
+                }
+                boolean done;
+                switch (modes[channel]) {
+                    case MODE_SPRING:
+                        done = stepSpring(card, p, channel, elapsed);
+                        break;
+                    case MODE_FLING:
+                        done = stepFling(card, p, channel, elapsed);
+                        break;
+                    default:
+                        done = stepTween(card, p, channel, elapsed);
+                        break;
+                }
+                if (done) {
+                    generations[channel] = 0;
+                } else if (owner == listenerGeneration) {
+                    listenerDone = false;
+                }
+            }
+            if (listening && listenerDone) {
+                endListener(slot, !interrupted[slot]);
+            }
+        }
+        inFrame = false;
+        compact();
+        dispatchEnded();
+        return hasRunningAnimations();
+    }
+
+    private boolean stepTween(T card, int property, int channel, long elapsed) {
+        long duration = durationNanos[channel];
+        float fraction = duration > 0 && elapsed < duration ? (float) elapsed / duration : 1f;
+        properties.set(card, property, from[channel] + (to[channel] - from[channel])
+                * interpolate(interpolators[channel], fraction));
+        return fraction >= 1f;
+    }
+
+    private boolean stepSpring(T card, int property, int channel, long elapsed) {
+        float seconds = elapsed / NANOS_PER_SECOND;
+        float start = from[channel] - to[channel];
+        float frequency = physics[channel];
+        float displacement = DeckPhysics.springDisplacement(start, startVelocities[channel], frequency, seconds);
+        float velocity = DeckPhysics.springVelocity(start, startVelocities[channel], frequency, seconds);
+        float rest = REST_THRESHOLDS[property];
+        boolean done = Math.abs(displacement) < rest && Math.abs(velocity) < rest * 10;
+        velocities[channel] = done ? 0 : velocity;
+        properties.set(card, property, done ? to[channel] : to[channel] + displacement);
+        return done;
+    }
+
+    private boolean stepFling(T card, int property, int channel, long elapsed) {
+        boolean done = elapsed >= durationNanos[channel];
+        float seconds = (done ? durationNanos[channel] : elapsed) / NANOS_PER_SECOND;
+        float friction = physics[channel];
+        velocities[channel] = DeckPhysics.frictionVelocity(startVelocities[channel], friction, seconds);
+        properties.set(card, property,
+                from[channel] + DeckPhysics.frictionDistance(startVelocities[channel], friction, seconds));
+        return done;
+    }
+
+    /*package*/ static float interpolate(int interpolator, float t) {
+        switch (interpolator) {
+            case ACCELERATE_DECELERATE:
+                return (float) (Math.cos((t + 1) * Math.PI) / 2.0f) + 0.5f;
+            case OVERSHOOT:
+                t -= 1.0f;
+                return t * t * ((OVERSHOOT_TENSION + 1) * t + OVERSHOOT_TENSION) + 1.0f;
+            default:
+                return t;
+        }
+    }
+
+    private int nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            //0 marks idle channels
+            generation = 1;
+        }
+        return generation;
+    }
+
+    private int slotOf(T card) {
+        for (int slot = 0; slot < slotCount; ++slot) {
+            if (cards[slot] == card) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int addSlot(T card) {
+        if (slotCount == cards.length) {
+            allocate(slotCount * 2);
+        }
+        int slot = slotCount++;
+        cards[slot] = card;
+        listeners[slot] = null;
+        listenerGenerations[slot] = 0;
+        interrupted[slot] = false;
+        int base = slot * PROPERTY_COUNT;
+        for (int p = 0; p < PROPERTY_COUNT; ++p) {
+            generations[base + p] = 0;
+        }
+        return slot;
+    }
+
+    private boolean isActive(int slot) {
+        if (listeners[slot] != null) {
+            return true;
+        }
+        int base = slot * PROPERTY_COUNT;
+        for (int p = 0; p < PROPERTY_COUNT; ++p) {
+            if (generations[base + p] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queue the listener of a slot, it's called right away unless a frame is running.
+     */
+    private void endListener(int slot, boolean finished) {
+        if (endedCount == endedCards.length) {
+            endedCards = grow(endedCards, endedCount * 2);
+            endedListeners = grow(endedListeners, endedCount * 2);
+            endedFinished = grow(endedFinished, endedCount * 2);
+        }
+        endedCards[endedCount] = cards[slot];
+        endedListeners[endedCount] = listeners[slot];
+        endedFinished[endedCount] = finished;
+        endedCount++;
+        listeners[slot] = null;
+        listenerGenerations[slot] = 0;
+        if (!inFrame) {
+            dispatchEnded();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatchEnded() {
+        if (dispatching) {
+            return;
+        }
+        //listeners may start or cancel animations, which can queue more listeners
+        dispatching = true;
+        try {
+            for (int i = 0; i < endedCount; ++i) {
+                T card = (T) endedCards[i];
+                Listener<T> listener = (Listener<T>) endedListeners[i];
+                endedCards[i] = null;
+                endedListeners[i] = null;
+                listener.onAnimationEnd(card, endedFinished[i]);
+            }
+        } finally {
+            endedCount = 0;
+            dispatching = false;
+        }
+    }
+
+    /**
+     * Drop the slots that have nothing left to do, keeping the order of the others.
+     */
+    private void compact() {
+        int kept = 0;
+        for (int slot = 0; slot < slotCount; ++slot) {
+            if (!isActive(slot)) {
+                continue;
+            }
+            if (kept != slot) {
+                moveSlot(slot, kept);
+            }
+            kept++;
+        }
+        for (int slot = kept; slot < slotCount; ++slot) {
+            cards[slot] = null;
+            listeners[slot] = null;
+        }
+        slotCount = kept;
+    }
+
+    private void moveSlot(int src, int dst) {
+        cards[dst] = cards[src];
+        listeners[dst] = listeners[src];
+        listenerGenerations[dst] = listenerGenerations[src];
+        interrupted[dst] = interrupted[src];
+        int s = src * PROPERTY_COUNT;
+        int d = dst * PROPERTY_COUNT;
+        System.arraycopy(from, s, from, d, PROPERTY_COUNT);
+        System.arraycopy(to, s, to, d, PROPERTY_COUNT);
+        System.arraycopy(startNanos, s, startNanos, d, PROPERTY_COUNT);
+        System.arraycopy(delayNanos, s, delayNanos, d, PROPERTY_COUNT);
+        System.arraycopy(durationNanos, s, durationNanos, d, PROPERTY_COUNT);
+        System.arraycopy(interpolators, s, interpolators, d, PROPERTY_COUNT);
+        System.arraycopy(modes, s, modes, d, PROPERTY_COUNT);
+        System.arraycopy(startVelocities, s, startVelocities, d, PROPERTY_COUNT);
+        System.arraycopy(velocities, s, velocities, d, PROPERTY_COUNT);
+        System.arraycopy(physics, s, physics, d, PROPERTY_COUNT);
+        System.arraycopy(generations, s, generations, d, PROPERTY_COUNT);
+    }
+
+    private static Object[] grow(Object[] array, int size) {
+        Object[] grown = new Object[size];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, Math.min(array.length, size));
+        }
+        return grown;
+    }
+
+    private static float[] grow(float[] array, int size) {
+        float[] grown = new float[size];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, Math.min(array.length, size));
+        }
+        return grown;
+    }
+
+    private static long[] grow(long[] array, int size) {
+        long[] grown = new long[size];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, Math.min(array.length, size));
+        }
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] grown = new int[size];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, Math.min(array.length, size));
+        }
+        return grown;
+    }
+
+    private static boolean[] grow(boolean[] array, int size) {
+        boolean[] grown = new boolean[size];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, Math.min(array.length, size));
+        }
+        return grown;
+    }
+}
@@ -0,0 +1,161 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Keeps track of which adapter positions the deck is showing. The cards on the deck always
+ * stand for the positions [top, next): the top card is at the top position and the next card
+ * pulled from the adapter is the one at the next position.
+ * Every operation is constant time, the adapter is never walked.
+ */
+/*package*/ class DeckCursor {
+
+    /**
+     * Item count of an adapter whose size isn't known, see {@link SwipeDeck.EndlessAdapter}.
+     */
+    public static final int COUNT_UNBOUNDED = -1;
+
+    private int topPosition;
+    private int nextPosition;
+    private int count;
+
+    /**
+     * Start over with an empty deck whose top card will be the given position.
+     */
+    public void reset(int position) {
+        topPosition = position;
+        nextPosition = position;
+    }
+
+    /**
+     * All cards were taken off the deck, the next card pulled in becomes the top card again.
+     */
+    public void rewind() {
+        nextPosition = topPosition;
+    }
+
+    public int getTopPosition() {
+        return topPosition;
+    }
+
+    public int getNextPosition() {
+        return nextPosition;
+    }
+
+    /**
+     * @return number of cards that should be on the deck
+     */
+    public int getCardCount() {
+        return nextPosition - topPosition;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isUnbounded() {
+        return count == COUNT_UNBOUNDED;
+    }
+
+    /**
+     * @return whether the adapter has the given position, always true for unbounded adapters
+     */
+    public boolean isInBounds(int position) {
+        return position >= 0 && (count == COUNT_UNBOUNDED || position < count);
+    }
+
+    /**
+     * A card was pulled in at the bottom of the deck.
+     *
+     * @return the adapter position of that card
+     */
+    public int advanceNext() {
+        return nextPosition++;
+    }
+
+    /**
+     * The top card was taken off the deck.
+     */
+    public void advanceTop() {
+        if (topPosition < nextPosition) {
+            topPosition++;
+        }
+    }
+
+    /**
+     * @param depth 0 for the top card, 1 for the card below it and so on
+     * @return adapter position of that card
+     */
+    public int positionAt(int depth) {
+        return topPosition + depth;
+    }
+
+    /**
+     * Items were inserted into the adapter. Items inserted above the top card end up among the
+     * already swiped ones, the visible cards stay as they are. Items inserted at the top card's
+     * position are shown next, on top of the cards that were there.
+     *
+     * @return number of cards to take off the bottom of the deck, they have moved
+     * and get pulled in again
+     */
+    public int onItemRangeInserted(int positionStart, int itemCount) {
+        if (count != COUNT_UNBOUNDED) {
+            count += itemCount;
+        }
+        if (positionStart < topPosition) {
+            topPosition += itemCount;
+            nextPosition += itemCount;
+            return 0;
+        }
+        return dropFrom(positionStart);
+    }
+
+    /**
+     * Items were removed from the adapter. The cards of the removed items are taken off
+     * the deck, the cards below them move up and keep their place.
+     *
+     * @return number of cards to take off the deck, starting with the one at the position
+     * {@code max(positionStart, top)} had before the call
+     */
+    public int onItemRangeRemoved(int positionStart, int itemCount) {
+        if (count != COUNT_UNBOUNDED) {
+            count = Math.max(0, count - itemCount);
+        }
+        int positionEnd = positionStart + itemCount;
+        int removedAbove = Math.max(0, Math.min(positionEnd, topPosition) - positionStart);
+        int removedCards = Math.max(0, Math.min(positionEnd, nextPosition) - Math.max(positionStart, topPosition));
+        if (positionStart < nextPosition) {
+            nextPosition -= removedAbove + removedCards;
+        }
+        topPosition -= removedAbove;
+        return removedCards;
+    }
+
+    /**
+     * The adapter may have shrunk, forget about cards past its end.
+     *
+     * @return number of cards to take off the bottom of the deck
+     */
+    public int clampToCount() {
+        if (count == COUNT_UNBOUNDED || nextPosition <= count) {
+            return 0;
+        }
+        int dropped = dropFrom(count);
+        if (topPosition > count) {
+            reset(count);
+        }
+        return dropped;
+    }
+
+    private int dropFrom(int position) {
+        if (position >= nextPosition) {
+            return 0;
+        }
+        position = Math.max(position, topPosition);
+        int dropped = nextPosition - position;
+        nextPosition = position;
+        return dropped;
+    }
+}
@@ -0,0 +1,119 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Closed form motion of the deck's physics animations. Every function gives the state a given
+ * time after the start, so the result is exact and the same whatever frames it is sampled at.
+ * Velocities are in units per second, times in seconds unless named otherwise.
+ */
+/*package*/ final class DeckPhysics {
+
+    /**
+     * Stiffness of the spring putting a released card back in place, like a 22 rad/s spring.
+     */
+    public static final float RESET_STIFFNESS = 500f;
+    /**
+     * Friction slowing down a flung card, the card loses 1 - e^-friction of its speed per second.
+     */
+    public static final float FLING_FRICTION = 4f;
+    /**
+     * Longest a flung card takes to leave the deck, slower flings are sped up to make it.
+     */
+    public static final float MAX_FLING_SECONDS = 0.4f;
+    /**
+     * Slowest velocity along a swipe, in dp per second, that the velocity across it is sped up
+     * along with. Slower releases were committed by distance, their direction means little.
+     */
+    public static final float MIN_CROSS_SCALED_VELOCITY_DP = 500f;
+    /**
+     * Most the velocity across a fling is sped up by, see {@link #crossVelocity}.
+     */
+    public static final float MAX_CROSS_SCALE = 3f;
+
+    private DeckPhysics() {
+    }
+
+    /**
+     * @return angular frequency of a spring with the given stiffness and a unit mass
+     */
+    public static float springFrequency(float stiffness) {
+        return (float) Math.sqrt(stiffness);
+    }
+
+    /**
+     * Displacement of a critically damped spring from its rest position.
+     *
+     * @param displacement displacement at the start
+     * @param velocity     velocity at the start
+     * @param frequency    see {@link #springFrequency(float)}
+     */
+    public static float springDisplacement(float displacement, float velocity, float frequency, float seconds) {
+        return (float) ((displacement + (velocity + frequency * displacement) * seconds)
+                * Math.exp(-frequency * seconds));
+    }
+
+    /**
+     * Velocity of a critically damped spring, same parameters as {@link #springDisplacement}.
+     */
+    public static float springVelocity(float displacement, float velocity, float frequency, float seconds) {
+        return (float) ((velocity - frequency * (velocity + frequency * displacement) * seconds)
+                * Math.exp(-frequency * seconds));
+    }
+
+    /**
+     * Distance covered by something started at the given velocity and slowed down by friction.
+     */
+    public static float frictionDistance(float velocity, float friction, float seconds) {
+        return (float) (velocity / friction * (1 - Math.exp(-friction * seconds)));
+    }
+
+    public static float frictionVelocity(float velocity, float friction, float seconds) {
+        return (float) (velocity * Math.exp(-friction * seconds));
+    }
+
+    /**
+     * The velocity a fling continues with to cover a distance: the finger's velocity, unless
+     * friction would stop it short or take longer than maxSeconds.
+     *
+     * @return a velocity in the direction of the distance
+     */
+    public static float flingVelocity(float distance, float velocity, float friction, float maxSeconds) {
+        float minimum = (float) (Math.abs(distance) * friction / (1 - Math.exp(-friction * maxSeconds)));
+        float speed = Math.max(Math.abs(velocity), minimum);
+        return distance < 0 ? -speed : speed;
+    }
+
+    /**
+     * The velocity across a fling, so the card keeps going the way the finger did. It is sped up
+     * as much as the fling was along the swipe, at most {@link #MAX_CROSS_SCALE} times, and only
+     * if the finger moved the swipe's way at the given minimum or more. Otherwise the finger's
+     * velocity across the swipe is kept as it is.
+     *
+     * @param along       the finger's velocity along the swipe
+     * @param across      the finger's velocity across the swipe
+     * @param fling       velocity along the swipe the card continues with, see {@link #flingVelocity}
+     * @param minVelocity {@link #MIN_CROSS_SCALED_VELOCITY_DP} in pixels per second
+     */
+    public static float crossVelocity(float along, float across, float fling, float minVelocity) {
+        boolean sameWay = along < 0 == fling < 0;
+        if (!sameWay || Math.abs(along) < minVelocity) {
+            return across;
+        }
+        return across * Math.min(Math.abs(fling / along), MAX_CROSS_SCALE);
+    }
+
+    /**
+     * @param velocity a velocity that makes it, see {@link #flingVelocity}
+     * @return time it takes a fling to cover the distance, in nanoseconds
+     */
+    public static long flingDurationNanos(float distance, float velocity, float friction) {
+        if (distance == 0) {
+            return 0;
+        }
+        double covered = distance * friction / velocity;
+        if (covered >= 1) {
+            //friction stops it first
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil(-Math.log(1 - covered) / friction * 1e9);
+    }
+}
@@ -0,0 +1,104 @@
+package com.daprlabs.cardstack;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * A soft shadow the deck draws under the cards that have no elevation of their own, see
+ * {@link SwipeDeck#setShadowBudget(int)}. It is blurred once into a small alpha bitmap holding
+ * the four corners, and drawn at any size by stretching the edges between them, so drawing it
+ * costs nine bitmap draws no matter how big the cards are or how many share it.
+ */
+/*package*/ final class DeckShadow {
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+    //edges of the nine pieces, in the bitmap and on screen
+    private final int[] us = new int[4];
+    private final float[] xs = new float[4];
+    private final float[] ys = new float[4];
+    private final float blurRadius;
+    private final float offsetY;
+    //how far the corner pieces reach in, both in the bitmap and on screen
+    private final int corner;
+    private Bitmap bitmap;
+
+    /**
+     * @param blurRadius   how far the shadow reaches past the cards, in pixels
+     * @param cornerRadius of the cards
+     * @param offsetY      how far the shadow is moved down, as if lit from above
+     * @param color        of the shadow, its alpha is how dark the shadow is
+     */
+    public DeckShadow(float blurRadius, float cornerRadius, float offsetY, int color) {
+        this.blurRadius = blurRadius;
+        this.offsetY = offsetY;
+        corner = (int) Math.ceil(2 * blurRadius + cornerRadius);
+        paint.setColor(color);
+    }
+
+    /**
+     * Blur the shadow of a rounded rectangle with the corner radius into a bitmap with a single
+     * pixel between its corners.
+     */
+    private void bake() {
+        int size = 2 * corner + 1;
+        bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ALPHA_8);
+        Paint blur = new Paint(Paint.ANTI_ALIAS_FLAG);
+        if (blurRadius > 0) {
+            blur.setMaskFilter(new BlurMaskFilter(blurRadius, BlurMaskFilter.Blur.NORMAL));
+        }
+        float cornerRadius = corner - 2 * blurRadius;
+        RectF card = new RectF(blurRadius, blurRadius, size - blurRadius, size - blurRadius);
+        new Canvas(bitmap).drawRoundRect(card, cornerRadius, cornerRadius, blur);
+        us[1] = corner;
+        us[2] = size - corner;
+        us[3] = size;
+    }
+
+    /**
+     * Draw the shadow of cards covering the given rectangle.
+     */
+    public void draw(Canvas canvas, float left, float top, float right, float bottom) {
+        if (bitmap == null) {
+            bake();
+        }
+        //the bitmap has the card inset by the blur radius
+        left -= blurRadius;
+        top += offsetY - blurRadius;
+        right += blurRadius;
+        bottom += offsetY + blurRadius;
+        if (right - left < 2 * corner || bottom - top < 2 * corner) {
+            return;
+        }
+        xs[0] = left;
+        xs[1] = left + corner;
+        xs[2] = right - corner;
+        xs[3] = right;
+        ys[0] = top;
+        ys[1] = top + corner;
+        ys[2] = bottom - corner;
+        ys[3] = bottom;
+        for (int row = 0; row < 3; ++row) {
+            for (int column = 0; column < 3; ++column) {
+                src.set(us[column], us[row], us[column + 1], us[row + 1]);
+                dst.set(xs[column], ys[row], xs[column + 1], ys[row + 1]);
+                canvas.drawBitmap(bitmap, src, dst, paint);
+            }
+        }
+    }
+
+    /**
+     * Give up the baked bitmap, it is baked again the next time the shadow is drawn.
+     */
+    public void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.daprlabs.cardstack;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Decoded card content, bitmaps usually, for the positions the deck is about to show. As a
+ * {@link CardContentPreloader} it decodes the upcoming positions on an executor, within a budget
+ * of bytes. When it is over budget the entries furthest from the top card go first, cards
+ * already swiped off before anything else, the least recently used among equals.
+ * Adapters take the content with {@link #get(int)} and load it themselves on a miss.
+ * Entries are kept by position, a change of the adapter's data drops them all, see {@link #invalidate()}.
+ *
+ * @param <T> type of the decoded content
+ */
+public class DecodeAheadCache<T> implements CardContentPreloader {
+
+    public interface Decoder<T> {
+        /**
+         * Decode the content of a position, called on the cache's executor.
+         *
+         * @return the content, null if there is none
+         */
+        T decode(int position);
+
+        /**
+         * @return size of decoded content in bytes, e.g. Bitmap.getByteCount()
+         */
+        int sizeOf(T value);
+    }
+
+    private final Decoder<T> decoder;
+    private final Executor executor;
+    private final long maxBytes;
+
+    //in access order, so the least recently used entry comes first
+    private final LinkedHashMap<Integer, T> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> decoding = new HashSet<>();
+    private long size;
+    //positions from top up to end are the ones worth decoding
+    private int top;
+    private int end;
+    //bumped when the data changes, decodes started before that are thrown away
+    private int generation;
+
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+    private int decodeCount;
+
+    /**
+     * @param maxBytes budget for all the decoded content together
+     * @param executor runs the decoding, off the UI thread
+     */
+    public DecodeAheadCache(Decoder<T> decoder, long maxBytes, Executor executor) {
+        this.decoder = decoder;
+        this.maxBytes = maxBytes;
+        this.executor = executor;
+    }
+
+    @Override
+    public void preload(int topPosition, int count) {
+        synchronized (this) {
+            top = topPosition;
+            end = topPosition + count;
+        }
+        for (int position = topPosition; position < topPosition + count; ++position) {
+            synchronized (this) {
+                if (entries.containsKey(position) || !decoding.add(position)) {
+                    continue;
+                }
+            }
+            executor.execute(new DecodeTask(position, generation));
+        }
+    }
+
+    /**
+     * The positions mean other items now: drop everything and throw away the decodes still
+     * running once they are done.
+     */
+    @Override
+    public synchronized void invalidate() {
+        entries.clear();
+        decoding.clear();
+        size = 0;
+        ++generation;
+    }
+
+    /**
+     * @return the decoded content of a position, null if it isn't decoded (yet)
+     */
+    public synchronized T get(int position) {
+        T value = entries.get(position);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    private void onDecoded(int position, int generation, T value) {
+        synchronized (this) {
+            //decoded for data that changed since
+            if (generation != this.generation) {
+                return;
+            }
+            decoding.remove(position);
+            //the top moved past it while it was decoding
+            if (value == null || position < top || position >= end) {
+                return;
+            }
+            int valueSize = decoder.sizeOf(value);
+            int distance = position - top;
+            //make room by dropping what is further from the top, if there is enough of it
+            long room = maxBytes - size;
+            long evictable = 0;
+            for (Map.Entry<Integer, T> entry : entries.entrySet()) {
+                if (distanceFromTop(entry.getKey()) > distance) {
+                    evictable += decoder.sizeOf(entry.getValue());
+                }
+            }
+            if (valueSize > room + evictable) {
+                return;
+            }
+            while (size + valueSize > maxBytes) {
+                evictFurthest();
+            }
+            entries.put(position, value);
+            size += valueSize;
+        }
+    }
+
+    private int distanceFromTop(int position) {
+        return position < top ? Integer.MAX_VALUE : position - top;
+    }
+
+    private void evictFurthest() {
+        Map.Entry<Integer, T> furthest = null;
+        for (Map.Entry<Integer, T> entry : entries.entrySet()) {
+            //entries come least recently used first, only a larger distance takes over
+            if (furthest == null || distanceFromTop(entry.getKey()) > distanceFromTop(furthest.getKey())) {
+                furthest = entry;
+            }
+        }
+        size -= decoder.sizeOf(furthest.getValue());
+        entries.remove(furthest.getKey());
+        evictionCount++;
+    }
+
+    /**
+     * Drop everything, decodes still running are let finish and kept if they are still wanted.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return bytes of decoded content held
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of entries dropped to make room for ones closer to the top
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int getDecodeCount() {
+        return decodeCount;
+    }
+
+    private class DecodeTask implements Runnable {
+
+        private final int position;
+        private final int generation;
+
+        DecodeTask(int position, int generation) {
+            this.position = position;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            synchronized (DecodeAheadCache.this) {
+                if (generation != DecodeAheadCache.this.generation) {
+                    return;
+                }
+                //no longer wanted by the time it gets to run
+                if (position < top || position >= end) {
+                    decoding.remove(position);
+                    return;
+                }
+                decodeCount++;
+            }
+            onDecoded(position, generation, decoder.decode(position));
+        }
+    }
+}
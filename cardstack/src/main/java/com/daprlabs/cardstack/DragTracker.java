@@ -0,0 +1,240 @@
+package com.daprlabs.cardstack;
+
+/**
+ * The drag of a card as a state machine over pointer events, free of any Android types so it
+ * can be driven by a recorded trace. One pointer drives the drag at a time: a finger coming
+ * down takes over from the one before it and when the driving finger goes up another one still
+ * down takes over, either way the card doesn't jump. The state is kept in primitive fields.
+ * A gesture that leaves the slop along an axis the card isn't dragged on is rejected, it is
+ * left to whoever scrolls on that axis, see {@link #setAxes(boolean, boolean)}.
+ * <p>
+ * Positions are in the coordinates of the deck, every method returns one of the RESULT_
+ * constants telling the caller what happened.
+ */
+/*package*/ final class DragTracker {
+
+    public static final int RESULT_NONE = 0;
+    //the pointers went past the touch slop, the card starts to follow them
+    public static final int RESULT_DRAG_START = 1;
+    public static final int RESULT_DRAG = 2;
+    //the last pointer went up after a drag, see getVelocityX() and getVelocityY()
+    public static final int RESULT_RELEASE = 3;
+    //the last pointer went up without a drag
+    public static final int RESULT_CLICK = 4;
+    //the gesture was canceled after the drag started
+    public static final int RESULT_CANCEL = 5;
+    //the pointers went past the touch slop along an axis that isn't dragged on
+    public static final int RESULT_REJECT = 6;
+    //a move of a rejected gesture, see getDeltaX() and getDeltaY()
+    public static final int RESULT_SCROLL = 7;
+    //a rejected gesture ended, with the velocity if the last pointer went up
+    public static final int RESULT_SCROLL_END = 8;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PRESSED = 1;
+    private static final int STATE_DRAGGING = 2;
+    private static final int STATE_REJECTED = 3;
+
+    private static final int INVALID_POINTER = -1;
+
+    private final float touchSlopSquared;
+    private final VelocityEstimator velocityEstimator = new VelocityEstimator();
+    private boolean horizontal = true;
+    private boolean vertical = true;
+
+    private int state = STATE_IDLE;
+    private int activePointerId = INVALID_POINTER;
+    private int pointerCount;
+    //where the active pointer was last seen
+    private float lastX;
+    private float lastY;
+    //how far the pointers moved the card since the first went down
+    private float offsetX;
+    private float offsetY;
+    //the last move
+    private float deltaX;
+    private float deltaY;
+
+    public DragTracker(int touchSlop) {
+        touchSlopSquared = (float) touchSlop * touchSlop;
+    }
+
+    /**
+     * Set the axes a card is dragged on, whichever axis the pointers mostly moved along when
+     * they left the slop decides. Takes effect from the next gesture on.
+     */
+    public void setAxes(boolean horizontal, boolean vertical) {
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+    }
+
+    /**
+     * The first pointer went down, anything tracked before is dropped.
+     */
+    public int onDown(int pointerId, float x, float y, long timeMillis) {
+        state = STATE_PRESSED;
+        pointerCount = 1;
+        offsetX = 0;
+        offsetY = 0;
+        velocityEstimator.clear();
+        velocityEstimator.addSample(timeMillis, 0, 0);
+        takeOver(pointerId, x, y);
+        return RESULT_NONE;
+    }
+
+    /**
+     * Another pointer went down, it drives the drag from now on.
+     */
+    public int onPointerDown(int pointerId, float x, float y) {
+        if (state == STATE_IDLE) {
+            return RESULT_NONE;
+        }
+        ++pointerCount;
+        takeOver(pointerId, x, y);
+        return RESULT_NONE;
+    }
+
+    /**
+     * A pointer moved, only the moves of the active one count.
+     */
+    public int onMove(int pointerId, float x, float y, long timeMillis) {
+        if (state == STATE_IDLE || pointerId != activePointerId) {
+            return RESULT_NONE;
+        }
+        deltaX = x - lastX;
+        deltaY = y - lastY;
+        offsetX += deltaX;
+        offsetY += deltaY;
+        lastX = x;
+        lastY = y;
+        velocityEstimator.addSample(timeMillis, offsetX, offsetY);
+        if (state == STATE_DRAGGING) {
+            return RESULT_DRAG;
+        }
+        if (state == STATE_REJECTED) {
+            return RESULT_SCROLL;
+        }
+        if (offsetX * offsetX + offsetY * offsetY > touchSlopSquared) {
+            boolean alongX = Math.abs(offsetX) >= Math.abs(offsetY);
+            if (alongX ? horizontal : vertical) {
+                state = STATE_DRAGGING;
+                return RESULT_DRAG_START;
+            }
+            state = STATE_REJECTED;
+            return RESULT_REJECT;
+        }
+        return RESULT_NONE;
+    }
+
+    /**
+     * A pointer went up while others stay down.
+     *
+     * @param nextPointerId a pointer that stays down, it takes over if the active one went up
+     */
+    public int onPointerUp(int pointerId, int nextPointerId, float nextX, float nextY) {
+        if (state == STATE_IDLE) {
+            return RESULT_NONE;
+        }
+        --pointerCount;
+        if (pointerId == activePointerId) {
+            takeOver(nextPointerId, nextX, nextY);
+        }
+        return RESULT_NONE;
+    }
+
+    /**
+     * The last pointer went up, after a drag its position counts as a last move.
+     */
+    public int onUp(int pointerId, float x, float y, long timeMillis) {
+        int result = RESULT_NONE;
+        if (state == STATE_PRESSED) {
+            result = RESULT_CLICK;
+        } else if (state != STATE_IDLE) {
+            onMove(pointerId, x, y, timeMillis);
+            velocityEstimator.computeVelocity();
+            result = state == STATE_DRAGGING ? RESULT_RELEASE : RESULT_SCROLL_END;
+        }
+        reset();
+        return result;
+    }
+
+    public int onCancel() {
+        int result = RESULT_NONE;
+        if (state == STATE_DRAGGING) {
+            result = RESULT_CANCEL;
+        } else if (state == STATE_REJECTED) {
+            velocityEstimator.clear();
+            result = RESULT_SCROLL_END;
+        }
+        reset();
+        return result;
+    }
+
+    private void takeOver(int pointerId, float x, float y) {
+        activePointerId = pointerId;
+        lastX = x;
+        lastY = y;
+    }
+
+    private void reset() {
+        state = STATE_IDLE;
+        activePointerId = INVALID_POINTER;
+        pointerCount = 0;
+    }
+
+    public boolean isDragging() {
+        return state == STATE_DRAGGING;
+    }
+
+    /**
+     * @return whether a gesture is going on that was rejected, see {@link #RESULT_REJECT}
+     */
+    public boolean isRejected() {
+        return state == STATE_REJECTED;
+    }
+
+    /**
+     * @return whether pointers are down and weren't rejected
+     */
+    public boolean isTracking() {
+        return state == STATE_PRESSED || state == STATE_DRAGGING;
+    }
+
+    /**
+     * @return id of the pointer driving the drag, -1 when no gesture is going on
+     */
+    public int getActivePointerId() {
+        return activePointerId;
+    }
+
+    public int getPointerCount() {
+        return pointerCount;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+
+    public float getDeltaX() {
+        return deltaX;
+    }
+
+    public float getDeltaY() {
+        return deltaY;
+    }
+
+    /**
+     * @return velocity of the card when it was released, in pixels per second
+     */
+    public float getVelocityX() {
+        return velocityEstimator.getVelocityX();
+    }
+
+    public float getVelocityY() {
+        return velocityEstimator.getVelocityY();
+    }
+}
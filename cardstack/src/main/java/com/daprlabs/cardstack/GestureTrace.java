@@ -0,0 +1,56 @@
+package com.daprlabs.cardstack;
+
+import android.util.Log;
+
+/**
+ * Debug traces of the gestures on a deck, one log line per released card with everything the
+ * swipe classifier was given and what it decided. Call sites check {@link #ENABLED} first, it is
+ * a compile time constant, so unless the module is built with -PtraceGestures javac drops the
+ * calls and the building of their arguments altogether.
+ */
+/*package*/ final class GestureTrace {
+
+    public static final boolean ENABLED = BuildConfig.TRACE_GESTURES;
+
+    private static final String TAG = "SwipeDeck";
+
+    private GestureTrace() {
+    }
+
+    /**
+     * @param fling whether the card was flung or let go after a drag
+     */
+    public static void release(boolean fling, float dx, float dy, float velocityX, float velocityY,
+                               int flingSlop, int touchSlop, int direction) {
+        Log.d(TAG, format(fling, dx, dy, velocityX, velocityY, flingSlop, touchSlop, direction));
+    }
+
+    /*package*/ static String format(boolean fling, float dx, float dy, float velocityX, float velocityY,
+                                     int flingSlop, int touchSlop, int direction) {
+        return new StringBuilder(128)
+                .append("release type=").append(fling ? "fling" : "drag")
+                .append(" dx=").append(dx)
+                .append(" dy=").append(dy)
+                .append(" vx=").append(velocityX)
+                .append(" vy=").append(velocityY)
+                .append(" flingSlop=").append(flingSlop)
+                .append(" touchSlop=").append(touchSlop)
+                .append(" direction=").append(directionName(direction))
+                .toString();
+    }
+
+    private static String directionName(int direction) {
+        switch (direction) {
+            case SwipeDeck.SWIPE_LEFT:
+                return "left";
+            case SwipeDeck.SWIPE_RIGHT:
+                return "right";
+            case SwipeDeck.SWIPE_UP:
+                return "up";
+            case SwipeDeck.SWIPE_DOWN:
+                return "down";
+            default:
+                return "none";
+        }
+    }
+}
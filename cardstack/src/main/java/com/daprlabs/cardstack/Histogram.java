@@ -0,0 +1,84 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Histogram with fixed bucket bounds. Recording a value never allocates, so it is safe to
+ * call from layout and animation code.
+ */
+public class Histogram {
+
+    private final long[] upperBounds;
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * @param upperBounds inclusive upper bound of each bucket in ascending order, values above
+     *                    the last bound go into an extra overflow bucket
+     */
+    public Histogram(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; ++i) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("bucket bounds must be ascending");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new long[upperBounds.length + 1];
+    }
+
+    public void record(long value) {
+        int bucket = 0;
+        while (bucket < upperBounds.length && value > upperBounds[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * @return number of buckets, including the overflow bucket
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * @return inclusive upper bound of the bucket, Long.MAX_VALUE for the overflow bucket
+     */
+    public long getUpperBound(int bucket) {
+        return bucket < upperBounds.length ? upperBounds[bucket] : Long.MAX_VALUE;
+    }
+
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Cards that were built ahead of time for adapter positions just past the visible part
+ * of the deck, so a swipe only has to promote an existing card instead of building one.
+ * Storage is allocated once for the configured depth.
+ */
+/*package*/ class PrefetchWindow<T> {
+
+    private int[] positions;
+    private Object[] cards;
+    private int size;
+
+    public PrefetchWindow(int depth) {
+        positions = new int[depth];
+        cards = new Object[depth];
+    }
+
+    public int getDepth() {
+        return positions.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == positions.length;
+    }
+
+    public boolean contains(int position) {
+        return indexOf(position) >= 0;
+    }
+
+    public void put(int position, T card) {
+        if (isFull() || contains(position)) {
+            throw new IllegalStateException("no room for position " + position);
+        }
+        positions[size] = position;
+        cards[size] = card;
+        size++;
+    }
+
+    /**
+     * Remove the card prefetched for the given position.
+     *
+     * @return the card or null if that position wasn't prefetched
+     */
+    public T take(int position) {
+        int index = indexOf(position);
+        return index >= 0 ? removeAt(index) : null;
+    }
+
+    /**
+     * Remove one card whose position falls outside of [first, first + depth).
+     *
+     * @return the stale card or null if every prefetched card is still inside the window
+     */
+    public T takeStale(int first) {
+        int last = first + positions.length;
+        for (int i = 0; i < size; ++i) {
+            if (positions[i] < first || positions[i] >= last) {
+                return removeAt(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove any card, used to empty the window.
+     *
+     * @return a card or null if the window is empty
+     */
+    public T takeAny() {
+        return size > 0 ? removeAt(size - 1) : null;
+    }
+
+    /**
+     * @param first first position of the window
+     * @param count number of positions that actually exist starting at first
+     * @return the lowest position in the window that still needs a card, -1 if there is none
+     */
+    public int nextMissing(int first, int count) {
+        int end = first + Math.min(count, positions.length);
+        for (int position = first; position < end; ++position) {
+            if (!contains(position)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(int position) {
+        for (int i = 0; i < size; ++i) {
+            if (positions[i] == position) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeAt(int index) {
+        T card = (T) cards[index];
+        size--;
+        positions[index] = positions[size];
+        cards[index] = cards[size];
+        cards[size] = null;
+        return card;
+    }
+}
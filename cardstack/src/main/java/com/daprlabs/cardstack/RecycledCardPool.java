@@ -0,0 +1,124 @@
+package com.daprlabs.cardstack;
+
+import java.util.ArrayList;
+
+/**
+ * Holds cards that have been swiped off the deck so they can be handed back to the adapter
+ * as a convertView instead of inflating a fresh card for every swipe.
+ * Cards are kept in separate scrap heaps per adapter view type.
+ */
+public class RecycledCardPool<T> {
+
+    private final ArrayList<ArrayList<T>> scrapHeaps = new ArrayList<>();
+    private int maxScrapPerType;
+
+    private int recycledCount;
+    private int inflatedCount;
+
+    /**
+     * @param maxScrapPerType how many detached cards to keep around for each view type
+     */
+    public RecycledCardPool(int maxScrapPerType) {
+        this.maxScrapPerType = maxScrapPerType;
+    }
+
+    public void setMaxScrapPerType(int maxScrapPerType) {
+        this.maxScrapPerType = maxScrapPerType;
+        for (int i = 0; i < scrapHeaps.size(); ++i) {
+            ArrayList<T> heap = scrapHeaps.get(i);
+            while (heap.size() > maxScrapPerType) {
+                heap.remove(heap.size() - 1);
+            }
+        }
+    }
+
+    public int getMaxScrapPerType() {
+        return maxScrapPerType;
+    }
+
+    /**
+     * Take a card of the given view type out of the pool.
+     *
+     * @return a detached card or null if none of that type is available
+     */
+    public T obtain(int viewType) {
+        if (viewType < 0 || viewType >= scrapHeaps.size()) {
+            return null;
+        }
+        ArrayList<T> heap = scrapHeaps.get(viewType);
+        int size = heap.size();
+        return size > 0 ? heap.remove(size - 1) : null;
+    }
+
+    /**
+     * Put a detached card back into the pool.
+     *
+     * @return false if the card was dropped because the pool for that type is full
+     */
+    public boolean release(int viewType, T card) {
+        // negative types (e.g. Adapter.IGNORE_ITEM_VIEW_TYPE) are never recycled
+        if (viewType < 0 || card == null) {
+            return false;
+        }
+        while (scrapHeaps.size() <= viewType) {
+            scrapHeaps.add(new ArrayList<T>(maxScrapPerType));
+        }
+        ArrayList<T> heap = scrapHeaps.get(viewType);
+        if (heap.size() >= maxScrapPerType) {
+            return false;
+        }
+        heap.add(card);
+        return true;
+    }
+
+    /**
+     * Record the result of asking the adapter for a card, so we can tell how often
+     * the convertView we offered was actually reused.
+     *
+     * @param convertView the card we offered the adapter, may be null
+     * @param card        the card the adapter returned
+     */
+    public void onCardBound(T convertView, T card) {
+        if (convertView != null && convertView == card) {
+            recycledCount++;
+        } else {
+            inflatedCount++;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < scrapHeaps.size(); ++i) {
+            scrapHeaps.get(i).clear();
+        }
+    }
+
+    /**
+     * @return number of cards currently waiting in the pool, across all view types
+     */
+    public int getScrapCount() {
+        int count = 0;
+        for (int i = 0; i < scrapHeaps.size(); ++i) {
+            count += scrapHeaps.get(i).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of cards the adapter built by reusing a card from this pool
+     */
+    public int getRecycledCount() {
+        return recycledCount;
+    }
+
+    /**
+     * @return number of cards the adapter had to inflate from scratch
+     */
+    public int getInflatedCount() {
+        return inflatedCount;
+    }
+
+    public void resetCounters() {
+        recycledCount = 0;
+        inflatedCount = 0;
+    }
+}
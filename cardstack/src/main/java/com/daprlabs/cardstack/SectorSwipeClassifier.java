@@ -0,0 +1,127 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Classifies a release by the angle of the fling, or of the drag if there was no fast enough
+ * fling. Each direction owns a sector of angles around its axis, a fling within a sector
+ * swipes the card that way, a drag has to go far enough along the axis as well.
+ * Sectors are compared by the tangents of their angles, so classifying doesn't need any trig.
+ * Only left and right are on by default, turn up and down on with {@link #setSectorAngle(int, float)}.
+ */
+public class SectorSwipeClassifier implements SwipeClassifier {
+
+    public static final float DEFAULT_SECTOR_ANGLE = 45f;
+    public static final float DEFAULT_COMMIT_FRACTION = 0.5f;
+
+    //half the angle of each sector in degrees and its tangent, by direction
+    private final float[] sectorAngles = new float[4];
+    private final float[] sectorTangents = new float[4];
+    private float minVelocity;
+    private float commitFraction = DEFAULT_COMMIT_FRACTION;
+
+    /**
+     * @param minVelocity slowest fling that swipes a card, in pixels per second
+     */
+    public SectorSwipeClassifier(float minVelocity) {
+        this.minVelocity = minVelocity;
+        setSectorAngle(SwipeDeck.SWIPE_LEFT, DEFAULT_SECTOR_ANGLE);
+        setSectorAngle(SwipeDeck.SWIPE_RIGHT, DEFAULT_SECTOR_ANGLE);
+    }
+
+    /**
+     * Set the sector of a direction, an angle either side of its axis.
+     *
+     * @param halfAngle in degrees up to 90, 0 turns the direction off. Where sectors overlap the
+     *                  closer axis wins
+     */
+    public void setSectorAngle(int direction, float halfAngle) {
+        halfAngle = Math.max(0, Math.min(90, halfAngle));
+        sectorAngles[direction] = halfAngle;
+        sectorTangents[direction] = halfAngle >= 90
+                ? Float.POSITIVE_INFINITY
+                : (float) Math.tan(Math.toRadians(halfAngle));
+    }
+
+    public float getSectorAngle(int direction) {
+        return sectorAngles[direction];
+    }
+
+    /**
+     * @param minVelocity slowest fling that swipes a card, in pixels per second
+     */
+    public void setMinVelocity(float minVelocity) {
+        this.minVelocity = minVelocity;
+    }
+
+    public float getMinVelocity() {
+        return minVelocity;
+    }
+
+    /**
+     * @param commitFraction how far a card has to be dragged without a fling to be swiped,
+     *                       as a fraction of the deck's width
+     */
+    public void setCommitFraction(float commitFraction) {
+        this.commitFraction = commitFraction;
+    }
+
+    public float getCommitFraction() {
+        return commitFraction;
+    }
+
+    @Override
+    public int classify(float dx, float dy, float velocityX, float velocityY, int deckWidth) {
+        if ((velocityX != 0 || velocityY != 0)
+                && velocityX * velocityX + velocityY * velocityY >= minVelocity * minVelocity) {
+            int direction = directionOf(velocityX, velocityY);
+            if (direction != SwipeDeck.SWIPE_NONE) {
+                return direction;
+            }
+        }
+        int direction = directionOf(dx, dy);
+        if (direction != SwipeDeck.SWIPE_NONE && distanceAlong(direction, dx, dy) >= commitFraction * deckWidth) {
+            return direction;
+        }
+        return SwipeDeck.SWIPE_NONE;
+    }
+
+    /**
+     * @return the direction whose sector the vector is in, {@link SwipeDeck#SWIPE_NONE} if none
+     */
+    /*package*/ int directionOf(float x, float y) {
+        int best = SwipeDeck.SWIPE_NONE;
+        float bestAlong = 0;
+        float bestAcross = 0;
+        for (int direction = 0; direction < sectorAngles.length; ++direction) {
+            float along = distanceAlong(direction, x, y);
+            if (sectorAngles[direction] <= 0 || along <= 0) {
+                continue;
+            }
+            boolean horizontal = direction == SwipeDeck.SWIPE_LEFT || direction == SwipeDeck.SWIPE_RIGHT;
+            float across = Math.abs(horizontal ? y : x);
+            //within the sector when tan(angle off the axis) = across / along is at most tan(sector)
+            if (across > along * sectorTangents[direction]) {
+                continue;
+            }
+            //closer to this axis than to the best one so far
+            if (best == SwipeDeck.SWIPE_NONE || across * bestAlong < bestAcross * along) {
+                best = direction;
+                bestAlong = along;
+                bestAcross = across;
+            }
+        }
+        return best;
+    }
+
+    private static float distanceAlong(int direction, float dx, float dy) {
+        switch (direction) {
+            case SwipeDeck.SWIPE_LEFT:
+                return -dx;
+            case SwipeDeck.SWIPE_UP:
+                return -dy;
+            case SwipeDeck.SWIPE_DOWN:
+                return dy;
+            default:
+                return dx;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Decides whether a card that was let go is swiped off the deck, and in which direction.
+ * Called once per release, implementations should be pure functions of their arguments.
+ *
+ * @see SectorSwipeClassifier
+ * @see SwipeDeck#setSwipeClassifier(SwipeClassifier)
+ */
+public interface SwipeClassifier {
+    /**
+     * @param dx        how far the card was dragged right of its place, in pixels
+     * @param dy        how far the card was dragged below its place, in pixels
+     * @param velocityX velocity of the fling in pixels per second, 0 if the card was let go without one
+     * @param velocityY velocity of the fling in pixels per second, 0 if the card was let go without one
+     * @param deckWidth width of the deck in pixels
+     * @return {@link SwipeDeck#SWIPE_LEFT}, {@link SwipeDeck#SWIPE_RIGHT}, {@link SwipeDeck#SWIPE_UP},
+     * {@link SwipeDeck#SWIPE_DOWN} or {@link SwipeDeck#SWIPE_NONE} to put the card back
+     */
+    int classify(float dx, float dy, float velocityX, float velocityY, int deckWidth);
+}
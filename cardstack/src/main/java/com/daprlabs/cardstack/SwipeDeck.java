@@ -1,48 +1,199 @@
 package com.daprlabs.cardstack;
 
-import android.animation.Animator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewPropertyAnimator;
-import android.view.animation.OvershootInterpolator;
-import android.widget.Adapter;
+import android.view.animation.AnimationUtils;
 import android.widget.FrameLayout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Created by aaron on 4/12/2015.
  */
-public class SwipeDeck extends FrameLayout {
+public class SwipeDeck extends FrameLayout implements NestedScrollingChild {
+
+    /**
+     * Cards are never backed by a hardware layer.
+     */
+    public static final int LAYER_MODE_NONE = 0;
+    /**
+     * Every card is backed by a hardware layer for as long as it is in the deck.
+     */
+    public static final int LAYER_MODE_PERMANENT = 1;
+    /**
+     * Only the top card is backed by a hardware layer, and only while it is dragged or animated.
+     */
+    public static final int LAYER_MODE_MANAGED = 2;
+
+    /**
+     * A swiped card animates off the deck itself and goes back to the pool once it's gone.
+     */
+    public static final int EXIT_MODE_VIEW = 0;
+    /**
+     * A swiped card is drawn into a bitmap that animates off the deck in its place, the card
+     * goes back to the pool as soon as the swipe is committed.
+     */
+    public static final int EXIT_MODE_SNAPSHOT = 1;
+
+    //swipe directions, see SwipeClassifier
+    public static final int SWIPE_NONE = -1;
+    public static final int SWIPE_LEFT = 0;
+    public static final int SWIPE_RIGHT = 1;
+    public static final int SWIPE_UP = 2;
+    public static final int SWIPE_DOWN = 3;
 
     private static final String TAG = SwipeDeck.class.getSimpleName();
-    private static int NUMBER_OF_CARDS;
+    //how far from its old position an item is looked for after a data change
+    private static final int ID_SEARCH_DISTANCE = 100;
+    private static final int EXIT_DURATION = 200;
+    //how far each card with a shadow is raised above the one below it
+    private static final float ELEVATION_STEP = 10;
+    //the shadow the deck draws under the cards past the shadow budget
+    private static final float SHADOW_BLUR_DP = 2;
+    private static final float SHADOW_OFFSET_DP = 1;
+    private static final int SHADOW_COLOR = 0x33000000;
+    private int NUMBER_OF_CARDS;
     private float ROTATION_DEGREES;
     private float CARD_SPACING;
     private boolean RENDER_ABOVE;
     private boolean RENDER_BELOW;
     private int CARD_GRAVITY;
-    private boolean hardwareAccelerationEnabled = true;
+    private int layerMode = LAYER_MODE_PERMANENT;
+    private int exitMode;
+    //only draw what the cards above leave to be seen of a card, see CardOcclusion
+    private boolean occlusionCulling;
+    private float cardCornerRadius;
+    private final CardOcclusion occlusion = new CardOcclusion();
+    private int culledCardCount;
+    //how many cards from the top cast a shadow of their own, the deck draws one for the rest
+    private int shadowBudget;
+    private DeckShadow deckShadow;
+    private int deckShadowDrawCount;
+    private int activeLayerCount;
+    private int prefetchDepth;
 
     private int paddingLeft;
     private int paddingRight;
     private int paddingTop;
     private int paddingBottom;
 
+    //measure specs handed to every card, only recomputed when our size or padding changes
+    private int childWidthMeasureSpec;
+    private int childHeightMeasureSpec;
+    private boolean childMeasureSpecsDirty = true;
+
+    //state of the deck the last time the cards were positioned, layout passes that don't change
+    //any of it (parent relayouts, keyboard showing etc.) must not restart animations
+    private int laidOutPosition = -1;
+    private int laidOutChildCount = -1;
+    private int laidOutWidth;
+    private int laidOutHeight;
+
     private SwipeEventCallback eventCallback;
-    private Adapter adapter;
+    private android.widget.Adapter adapter;
+    //set when the deck was given a view holder adapter, adapter is then the bridge to it
+    private Adapter<?> viewHolderAdapter;
+    private final ViewHolderAdapterObserver viewHolderObserver = new ViewHolderAdapterObserver();
     private DataSetObserver observer;
-    private int currentPosition = -1;
+    //adapter positions of the cards on the deck
+    private final DeckCursor cursor = new DeckCursor();
+    private EndlessAdapter endlessAdapter;
     private SwipeListener swipeListener;
+    //gestures along an axis cards aren't swiped on go to a nested scrolling parent
+    private final NestedScrollingChildHelper nestedScrollingHelper = new NestedScrollingChildHelper(this);
     private boolean swipeable = true;
     private View topCard;
+    private RecycledCardPool<View> cardPool;
+    //a pool set with setRecycledCardPool, other decks take cards out of it as well
+    private boolean sharedCardPool;
+    //the cards went back to a shared pool when the deck was detached
+    private boolean cardsReleased;
+    //the cards reconcileCards keeps, by depth, only grows
+    private View[] reconciledCards = new View[0];
+
+    //cards swiped off the deck that are still animating away. They are no longer children, the
+    //deck keeps drawing them as disappearing views until their animation is done, so the next
+    //card is on top and takes touches as soon as a swipe is committed
+    private final ArrayList<View> exitingCards = new ArrayList<>();
+    //with EXIT_MODE_SNAPSHOT exitingCards holds snapshots instead, drawn in dispatchDraw
+    private int exitingSnapshotCount;
+    //a finished snapshot kept for the next swipe, along with its bitmap
+    private CardSnapshot spareSnapshot;
+    private final Paint snapshotPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    //every card transform the deck animates runs on this, one frame callback for all cards
+    private final DeckAnimator<View> cardAnimator = new DeckAnimator<>(new CardProperties());
+    private boolean animationFrameScheduled;
+    private ChoreographerAnimationFrame choreographerAnimationFrame;
+    private final Runnable postedAnimationFrame = new Runnable() {
+        @Override
+        public void run() {
+            onAnimationFrame(AnimationUtils.currentAnimationTimeMillis() * 1000000L);
+        }
+    };
+
+    private final DeckAnimator.Listener<View> resetListener = new DeckAnimator.Listener<View>() {
+        @Override
+        public void onAnimationEnd(View card, boolean finished) {
+            if (resetAnimationTracker != null) {
+                resetAnimationTracker.stop();
+            }
+            //the card may have been picked up again in the meantime
+            if (card != swipeListener.getCard() || !swipeListener.isDragging()) {
+                demoteLayer(card);
+            }
+        }
+    };
+
+    private final DeckAnimator.Listener<View> exitListener = new DeckAnimator.Listener<View>() {
+        @Override
+        public void onAnimationEnd(View card, boolean finished) {
+            //a canceled exit belongs to a card that is being recycled
+            if (finished) {
+                onExitAnimationEnd(card);
+            }
+        }
+    };
+
+    //optional instrumentation, everything below stays null / 0 while it's off
+    private SwipeDeckMetrics metrics;
+    private AnimationFrameTracker exitAnimationTracker;
+    private AnimationFrameTracker resetAnimationTracker;
+    private long swipeCommittedNanos;
+
+    //cards built ahead of time, during idle time, for the positions below the visible cards
+    private PrefetchWindow<View> prefetchWindow;
+    private CardContentPreloader contentPreloader;
+    private int preloadDepth;
+    //what the preloader was last asked for
+    private int preloadedPosition = -1;
+    private int preloadedCount;
+    private boolean prefetchScheduled;
+    private final MessageQueue.IdleHandler prefetchIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            //build a single card per idle slot and stay registered while there is more to do
+            prefetchScheduled = prefetchNextCard();
+            return prefetchScheduled;
+        }
+    };
 
     public SwipeDeck(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -58,15 +209,28 @@ public class SwipeDeck extends FrameLayout {
             RENDER_ABOVE = a.getBoolean(R.styleable.SwipeDeck_render_above, true);
             RENDER_BELOW = a.getBoolean(R.styleable.SwipeDeck_render_below, false);
             CARD_GRAVITY = a.getInt(R.styleable.SwipeDeck_card_gravity, 0);
+            prefetchDepth = a.getInt(R.styleable.SwipeDeck_prefetch_depth, 0);
+            exitMode = a.getInt(R.styleable.SwipeDeck_exit_mode, EXIT_MODE_VIEW);
+            occlusionCulling = a.getBoolean(R.styleable.SwipeDeck_occlusion_culling, false);
+            cardCornerRadius = a.getDimension(R.styleable.SwipeDeck_card_corner_radius, 0);
+            shadowBudget = a.getInt(R.styleable.SwipeDeck_shadow_budget, 2);
         } finally {
             a.recycle();
         }
 
+        cardPool = new RecycledCardPool<>(NUMBER_OF_CARDS);
+        setPrefetchDepth(prefetchDepth);
+
         paddingBottom = getPaddingBottom();
         paddingLeft = getPaddingLeft();
         paddingRight = getPaddingRight();
         paddingTop = getPaddingTop();
 
+        //a single listener follows whichever card is on top
+        swipeListener = new SwipeListener(context, new SwipeDeckCallback(), paddingLeft, paddingTop, ROTATION_DEGREES);
+        swipeListener.setSwipeable(swipeable);
+        setNestedScrollingEnabled(true);
+
         //set clipping of view parent to false so cards render outside their view boundary
         //make sure not to clip to padding
         setClipToPadding(false);
@@ -85,358 +249,1925 @@ public class SwipeDeck extends FrameLayout {
 
     /**
      * Set Hardware Acceleration Enabled.
+     * Same as setting {@link #LAYER_MODE_PERMANENT} or {@link #LAYER_MODE_NONE}.
      */
     public void setHardwareAccelerationEnabled(Boolean accel) {
-        this.hardwareAccelerationEnabled = accel;
+        setLayerMode(accel ? LAYER_MODE_PERMANENT : LAYER_MODE_NONE);
     }
 
-    public void setAdapter(Adapter adapter) {
-        if (this.adapter != null) {
-            this.adapter.unregisterDataSetObserver(observer);
-        }
-        if (adapter != null && adapter.getCount() > 0) {
-            currentPosition = 0;
-        }
-        this.adapter = adapter;
-
-        observer = new DataSetObserver() {
-            @Override
-            public void onChanged() {
-                super.onChanged();
-                //handle data set changes
-                //if we need to add any cards at this point (ie. the amount of cards on screen
-                //is less than the max number of cards to display) add the cards.
-                int childCount = getChildCount();
-                //only perform action if there are less cards on screen than NUMBER_OF_CARDS
-                if (childCount < NUMBER_OF_CARDS) {
-                    requestLayout();
-                }
-            }
-
-            @Override
-            public void onInvalidated() {
-                //reset state, remove views and request layout
-                currentPosition = 0;
-                removeAllViews();
-            }
-        };
-
-        adapter.registerDataSetObserver(observer);
-        removeAllViews();
+    /**
+     * Set how cards are backed by hardware layers, one of {@link #LAYER_MODE_NONE},
+     * {@link #LAYER_MODE_PERMANENT} or {@link #LAYER_MODE_MANAGED}.
+     * Only applies to cards added to the deck from now on.
+     */
+    public void setLayerMode(int layerMode) {
+        this.layerMode = layerMode;
     }
 
-
-    public void setPosition(int position) {
-        if (position < adapter.getCount()) {
-            currentPosition = position;
-            removeAllViews();
+    /**
+     * Set how swiped cards leave the deck, {@link #EXIT_MODE_VIEW} or {@link #EXIT_MODE_SNAPSHOT},
+     * same as the exit_mode attribute. With snapshots the cost of an exit animation frame doesn't
+     * depend on the card's layout and the card can be reused right away, at the price of drawing
+     * the card into a bitmap once per swipe. Only applies to swipes from now on.
+     */
+    public void setExitMode(int exitMode) {
+        this.exitMode = exitMode;
+        if (exitMode != EXIT_MODE_SNAPSHOT) {
+            releaseSpareSnapshot();
         }
     }
 
-    public View getSelectedView() {
-        throw new UnsupportedOperationException("Not supported");
+    public int getExitMode() {
+        return exitMode;
     }
 
     /**
-     * Set whether cards in the deck can be swiped.
-     *
-     * @param swipeable whether cards should be swipeable
+     * @return how many cards are currently backed by a hardware layer requested by the deck
      */
-    public void setSwipeable(boolean swipeable) {
-        this.swipeable = swipeable;
-        // We may have no listener if we call this before settings adapter
-        if (swipeListener != null) {
-            swipeListener.setSwipeable(swipeable);
-        }
+    public int getActiveLayerCount() {
+        return activeLayerCount;
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
-
-        // if we don't have an adapter, we don't need to do anything
-        if (adapter == null || adapter.getCount() == 0) {
-            currentPosition = -1;
-            removeAllViewsInLayout();
+    /**
+     * Back a card with a hardware layer or take it off one, keeping count of the layers we hold.
+     */
+    private void setCardLayer(View card, boolean hardware) {
+        boolean active = card.getTag(R.id.swipedeck_layer) != null;
+        if (active == hardware) {
             return;
         }
+        card.setLayerType(hardware ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE, null);
+        card.setTag(R.id.swipedeck_layer, hardware ? Boolean.TRUE : null);
+        activeLayerCount += hardware ? 1 : -1;
+    }
 
-        //pull in views from the adapter at the position the top of the deck is set to
-        //stop when you get to for cards or the end of the adapter
-        int childCount = getChildCount();
-        for (int i = childCount; i < NUMBER_OF_CARDS; ++i) {
-            addNextCard();
+    /**
+     * Back a card that is about to move with a hardware layer, when layers are managed.
+     */
+    private void promoteLayer(View card) {
+        if (layerMode == LAYER_MODE_MANAGED) {
+            setCardLayer(card, true);
         }
-        positionViews();
-        setupTopCard();
-        //position the new children we just added and set up the top card with a listener etc
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-
-        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
-        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-
-        int width;
-        int height;
-
-        if (widthMode == MeasureSpec.EXACTLY) {
-            //Must be this size
-            width = widthSize;
-        } else if (widthMode == MeasureSpec.AT_MOST) {
-            //Can't be bigger than...
-            width = widthSize;
-        } else {
-            //Be whatever you want
-            width = widthSize;
+    /**
+     * Give up the hardware layer of a card that stopped moving, when layers are managed.
+     */
+    private void demoteLayer(View card) {
+        if (layerMode == LAYER_MODE_MANAGED) {
+            setCardLayer(card, false);
         }
+    }
 
-        //Measure Height
-        if (heightMode == MeasureSpec.EXACTLY) {
-            //Must be this size
-            height = heightSize;
-        } else if (heightMode == MeasureSpec.AT_MOST) {
-            //Can't be bigger than...
-            height = heightSize;
-        } else {
-            //Be whatever you want
-            height = heightSize;
+    /**
+     * Change how many cards are visible, same as the max_visible attribute.
+     */
+    public void setMaxVisible(int maxVisible) {
+        NUMBER_OF_CARDS = maxVisible;
+        //a shared pool only grows, other decks may need more
+        if (!sharedCardPool || cardPool.getMaxScrapPerType() < maxVisible) {
+            cardPool.setMaxScrapPerType(maxVisible);
         }
-        setMeasuredDimension(width, height);
+        updateElevations(getChildCount() - 1);
+        invalidateDeckState();
+        requestLayout();
     }
 
-    private void removeTopCard() {
-        // Disable it while we remove it
-        topCard.setOnTouchListener(null);
-        swipeListener = null;
-        removeView(topCard);
-
-        // In order to catch usage of already removed card
-        topCard = null;
+    public int getMaxVisible() {
+        return NUMBER_OF_CARDS;
+    }
 
-        //if there are no more children left after top card removal let the callback know
-        if (getChildCount() <= 0) {
-            if (eventCallback != null) {
-                eventCallback.onCardsDepleted();
+    /**
+     * Share a pool of recycled cards between decks, for example many small decks in a scrolling
+     * list. A deck with a shared pool hands all of its cards back to the pool when it is detached
+     * from the window and takes them out of it again when it's attached, so the number of cards
+     * inflated follows the number of decks on screen rather than the number of decks.
+     * The decks sharing a pool must use adapters with the same view types.
+     * Cards the deck holds right now go back to the pool it had before.
+     *
+     * @param pool pool to share, null to go back to a pool of the deck's own
+     */
+    public void setRecycledCardPool(RecycledCardPool<View> pool) {
+        if (pool == cardPool) {
+            return;
+        }
+        cancelPrefetch();
+        recycleAllCards(false);
+        if (pool != null) {
+            sharedCardPool = true;
+            cardPool = pool;
+            if (pool.getMaxScrapPerType() < NUMBER_OF_CARDS) {
+                pool.setMaxScrapPerType(NUMBER_OF_CARDS);
             }
         } else {
-            setupTopCard();
+            sharedCardPool = false;
+            cardPool = new RecycledCardPool<>(NUMBER_OF_CARDS);
         }
+        requestLayout();
+        schedulePrefetch();
     }
 
-    private void addNextCard() {
-        if (currentPosition + 1 < adapter.getCount()) {
-            currentPosition++;
-            // TODO: Make view recycling work
-            // TODO: Instead of removing the view from here and adding it again when it's swiped
-            // ... don't remove and add to this instance: don't call removeView & addView in sequence.
-            View newBottomChild = adapter.getView(currentPosition, null/*lastRemovedView*/, this);
-
-            if (hardwareAccelerationEnabled) {
-                //set backed by an off-screen buffer
-                newBottomChild.setLayerType(View.LAYER_TYPE_HARDWARE, null);
-            }
+    /**
+     * @return the pool the deck recycles its cards into, the counters of a shared pool count the
+     * cards of every deck that shares it
+     */
+    public RecycledCardPool<View> getRecycledCardPool() {
+        return cardPool;
+    }
 
-            addAndMeasureChild(newBottomChild);
-        }
+    /**
+     * Only draw the part of each card the cards above it leave to be seen and skip the cards that
+     * are covered completely, same as the occlusion_culling attribute. Cards are taken to be
+     * opaque unless they are faded out, only turn this on if their backgrounds are.
+     */
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+        invalidate();
     }
 
-    private void setupTopCard() {
-        // get top child
-        topCard = getChildAt(getChildCount() - 1);
-        if (topCard != null) {
+    /**
+     * Set the corner radius of the cards, same as the card_corner_radius attribute. With occlusion
+     * culling the rounded corners of a card don't hide the card below it, and the shadow the deck
+     * draws under its cards is rounded off the same way.
+     */
+    public void setCardCornerRadius(float cardCornerRadius) {
+        this.cardCornerRadius = cardCornerRadius;
+        //baked with the old radius
+        releaseDeckShadow();
+        invalidate();
+    }
 
-            swipeListener =
-                    new SwipeListener(topCard, new SwipeDeckCallback(), paddingLeft, paddingTop, ROTATION_DEGREES);
-            swipeListener.setSwipeable(swipeable);
+    /**
+     * Set how many cards from the top of the deck get an elevation and cast a shadow of their
+     * own, same as the shadow_budget attribute. The cards below share a single shadow the deck
+     * draws, so the cost of shadows doesn't grow with max_visible. Shadows need Lollipop or up.
+     */
+    public void setShadowBudget(int shadowBudget) {
+        this.shadowBudget = shadowBudget;
+        updateElevations(getChildCount() - 1);
+        invalidate();
+    }
 
-            topCard.setOnTouchListener(swipeListener);
-        }
+    public int getShadowBudget() {
+        return shadowBudget;
     }
 
-    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
-    private void setZTranslations() {
-        //this is only needed to add shadows to cardviews on > lollipop
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            int count = getChildCount();
-            for (int i = 0; i < count; ++i) {
-                getChildAt(i).setTranslationZ(i * 10);
-            }
-        }
+    /**
+     * @return how many cards weren't drawn at all the last time the deck was drawn, because the
+     * cards above covered them
+     */
+    public int getCulledCardCount() {
+        return culledCardCount;
     }
 
     /**
-     * Adds a view as a child view and takes care of measuring it
+     * Set how many cards past the visible ones should be built ahead of time while the UI
+     * thread is idle, so a swipe only has to promote a card that is already built.
      *
-     * @param child The view to add
+     * @param prefetchDepth number of cards to build ahead, 0 turns prefetching off
      */
-    private void addAndMeasureChild(View child) {
-        ViewGroup.LayoutParams params = child.getLayoutParams();
-        if (params == null) {
-            params = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-        }
+    public void setPrefetchDepth(int prefetchDepth) {
+        cancelPrefetch();
+        this.prefetchDepth = prefetchDepth;
+        prefetchWindow = prefetchDepth > 0 ? new PrefetchWindow<View>(prefetchDepth) : null;
+        schedulePrefetch();
+    }
 
-        //ensure new card is under the deck at the beginning
-        child.setY(paddingTop);
+    /**
+     * Have the content of the cards coming up loaded ahead, e.g. with a {@link DecodeAheadCache},
+     * so a card shows its images from its first frame. The preloader is told about the top
+     * card's position and the ones after it every time the top of the deck moves.
+     *
+     * @param depth number of positions from the top card on to preload
+     */
+    public void setContentPreloader(CardContentPreloader preloader, int depth) {
+        contentPreloader = preloader;
+        preloadDepth = depth;
+        preloadedPosition = -1;
+        preloadContent();
+    }
 
-        //every time we add and measure a child refresh the children on screen and order them
-        ArrayList<View> children = new ArrayList<>();
-        children.add(child);
-        for (int i = 0; i < getChildCount(); ++i) {
-            children.add(getChildAt(i));
+    private void preloadContent() {
+        if (contentPreloader == null || adapter == null) {
+            return;
         }
-
-        removeAllViews();
-
-        for (View c : children) {
-            addViewInLayout(c, -1, params, true);
-            int itemWidth = getWidth() - (paddingLeft + paddingRight);
-            int itemHeight = getHeight() - (paddingTop + paddingBottom);
-            c.measure(MeasureSpec.EXACTLY | itemWidth, MeasureSpec.EXACTLY | itemHeight); //MeasureSpec.UNSPECIFIED
+        int top = cursor.getTopPosition();
+        int count = 0;
+        while (count < preloadDepth && hasItem(top + count)) {
+            ++count;
+        }
+        if (top == preloadedPosition && count == preloadedCount) {
+            return;
+        }
+        preloadedPosition = top;
+        preloadedCount = count;
+        if (count > 0) {
+            contentPreloader.preload(top, count);
         }
-        setZTranslations();
     }
 
     /**
-     * Positions the children at the "correct" positions
+     * The adapter's data changed, content preloaded so far may belong to other items now.
+     * Start over with what the deck shows from here on.
      */
-    private void positionViews() {
-        int childCount = getChildCount();
-        for (int i = 0; i < childCount; ++i) {
-            View child = getChildAt(i);
-
-            int width = child.getMeasuredWidth();
-            int height = child.getMeasuredHeight();
-            int left = (getWidth() - width) / 2;
-            child.layout(left, paddingTop, left + width, paddingTop + height);
-            // layout each child slightly above the previous child (we start with the bottom)
-
-            int offset = (int) ((childCount - 1 - i) * CARD_SPACING);
-
-            child.animate().setDuration(160).y(paddingTop + offset);
+    private void invalidateContent() {
+        if (contentPreloader == null) {
+            return;
         }
+        contentPreloader.invalidate();
+        preloadedPosition = -1;
+        preloadContent();
     }
 
-    public void setEventCallback(SwipeEventCallback eventCallback) {
-        this.eventCallback = eventCallback;
+    /**
+     * Items from the given position on changed or moved. Content preloaded before that position
+     * still belongs to the same items, e.g. when a page is appended to an endless feed.
+     */
+    private void invalidateContent(int positionStart) {
+        if (preloadedPosition >= 0 && positionStart >= preloadedPosition + preloadedCount) {
+            //the window may grow into the new items
+            preloadContent();
+            return;
+        }
+        invalidateContent();
     }
 
-//    public void swipeTopCardLeft(int duration) {
-//        if (topCard == null) {
-//            return;
-//        }
-//        animateOffScreenLeft(topCard, duration);
-//
-//        int positionInAdapter = nextAdapterCard - getChildCount();
-//        removeTopCard();
-//        if (eventCallback != null) {
-//            eventCallback.onCardSwipedLeft(positionInAdapter);
-//        }
-//    }
-//
-//    public void swipeTopCardRight(int duration) {
-//        if (topCard == null) {
-//            return;
-//        }
-//        animateOffScreenRight(topCard, duration);
-//
-//        int positionInAdapter = nextAdapterCard - getChildCount();
-//        removeTopCard();
-//        if (eventCallback != null) {
-//            eventCallback.onCardSwipedRight(positionInAdapter);
-//        }
-//    }
-
-    public void animateCardReset(View card) {
-        card.animate()
-                .setDuration(200)
-                .setInterpolator(new OvershootInterpolator(1.5f))
-                .x(paddingLeft)
-                .y(paddingRight)
-                .rotation(0);
-    }
-
-    private void animateOffScreen(View card, float velocityX, float velocityY) {
-        setEnabled(false);
-        card.animate()
-                .setDuration(200)
-                .xBy(velocityX)
-                .yBy(velocityY)
-                .alpha(0)
-                .setListener(new AnimatorEndListener() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        setEnabled(true);
-                        removeTopCard();
-                    }
-                });
-        //addNextCard();
+    /**
+     * Start collecting timings of the deck into the given metrics, null (the default) stops it.
+     * Animation durations and dropped frames are only collected on Jelly Bean and up.
+     */
+    public void setMetrics(SwipeDeckMetrics metrics) {
+        if (exitAnimationTracker != null) {
+            exitAnimationTracker.stop();
+            resetAnimationTracker.stop();
+        }
+        exitAnimationTracker = null;
+        resetAnimationTracker = null;
+        swipeCommittedNanos = 0;
+
+        this.metrics = metrics;
+        if (metrics != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            exitAnimationTracker = new AnimationFrameTracker(metrics,
+                    metrics.getExitAnimationTimes(), metrics.getExitAnimationDroppedFrames());
+            resetAnimationTracker = new AnimationFrameTracker(metrics,
+                    metrics.getResetAnimationTimes(), metrics.getResetAnimationDroppedFrames());
+        }
     }
 
-    public ViewPropertyAnimator animateOffScreenLeft(View card, int duration) {
-        return card.animate()
-                .setDuration(duration)
-                .x(getWidth() * -1)
-                .y(0)
-                .rotation(-30);
+    public SwipeDeckMetrics getMetrics() {
+        return metrics;
     }
 
-    public ViewPropertyAnimator animateOffScreenRight(View card, int duration) {
-        return card.animate()
-                .setDuration(duration)
-                .x(getWidth() * -1)
-                .y(0)
-                .rotation(30);
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        paddingLeft = left;
+        paddingTop = top;
+        paddingRight = right;
+        paddingBottom = bottom;
+        childMeasureSpecsDirty = true;
     }
 
-    public interface SwipeEventCallback {
-        //returning the object position in the adapter
-        void onCardSwipedLeft(int position);
-
-        void onCardSwipedRight(int position);
+    public void setAdapter(android.widget.Adapter adapter) {
+        registerViewHolderAdapter(null);
+        swapAdapter(adapter);
+    }
 
-        void onCardsDepleted();
+    /**
+     * Use an adapter with separate create and bind steps. Changes it reports for single items
+     * or ranges only touch the affected cards. Replaces an adapter set with
+     * {@link #setAdapter(android.widget.Adapter)} and the other way around.
+     */
+    public void setViewHolderAdapter(Adapter<?> adapter) {
+        registerViewHolderAdapter(adapter);
+        swapAdapter(adapter != null ? createBridge(adapter) : null);
+    }
 
-        void onCardClicked(int position);
+    private static <VH extends ViewHolder> ViewHolderAdapterBridge<VH> createBridge(Adapter<VH> adapter) {
+        return new ViewHolderAdapterBridge<>(adapter);
+    }
 
-        void onCardMove(float value);
+    private void registerViewHolderAdapter(Adapter<?> adapter) {
+        if (viewHolderAdapter != null) {
+            viewHolderAdapter.unregisterObserver(viewHolderObserver);
+        }
+        viewHolderAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerObserver(viewHolderObserver);
+        }
     }
 
-    private class SwipeDeckCallback implements SwipeListener.SwipeCallback {
-        @Override
-        public void onCardSwipedLeft(float velocityX, float velocityY) {
-            animateOffScreen(topCard, velocityX, velocityY);
-            int positionInAdapter = currentPosition - getChildCount();
-            if (eventCallback != null) {
-                eventCallback.onCardSwipedLeft(positionInAdapter);
-            }
+    /**
+     * @return the class that decides what the view types and ids of an adapter mean
+     */
+    private static Class<?> adapterClass(android.widget.Adapter adapter) {
+        if (adapter instanceof ViewHolderAdapterBridge) {
+            return ((ViewHolderAdapterBridge<?>) adapter).getAdapter().getClass();
         }
+        return adapter.getClass();
+    }
 
-        @Override
-        public void onCardSwipedRight(float velocityX, float velocityY) {
-            animateOffScreen(topCard, velocityX, velocityY);
-            int positionInAdapter = currentPosition - getChildCount();
-            if (eventCallback != null) {
-                eventCallback.onCardSwipedRight(positionInAdapter);
+    private void swapAdapter(final android.widget.Adapter adapter) {
+        android.widget.Adapter oldAdapter = this.adapter;
+        if (oldAdapter != null) {
+            oldAdapter.unregisterDataSetObserver(observer);
+        }
+        //a fresh instance of the same adapter (e.g. after a reload) can keep the cards whose
+        //items are still there, otherwise the view types of the old adapter mean nothing
+        //to the new one
+        boolean keepCards = oldAdapter != null && adapter != null
+                && adapterClass(oldAdapter) == adapterClass(adapter)
+                && oldAdapter.hasStableIds() && adapter.hasStableIds() && getChildCount() > 0;
+        cancelPrefetch();
+        if (!keepCards) {
+            recycleAllCards(false);
+            //the view types of other decks sharing the pool still mean something
+            if (!sharedCardPool) {
+                cardPool.clear();
             }
         }
+        invalidateDeckState();
+        this.adapter = adapter;
+        endlessAdapter = adapter instanceof EndlessAdapter ? (EndlessAdapter) adapter : null;
+        cursor.reset(0);
+        updateCount();
+        invalidateContent();
+        if (keepCards) {
+            reconcileCards(0, true);
+        }
 
-        @Override
-        public void onCardClicked() {
-            int positionInAdapter = currentPosition - getChildCount();
-            if (eventCallback != null) {
-                eventCallback.onCardClicked(positionInAdapter);
+        observer = new DataSetObserver() {
+            @Override
+            public void onChanged() {
+                super.onChanged();
+                //handle data set changes
+                updateCount();
+                invalidateContent();
+                if (adapter.hasStableIds() && getChildCount() > 0) {
+                    //keep the cards whose items are still there, replace the rest
+                    cancelPrefetch();
+                    reconcileCards(findTopPosition(), true);
+                    schedulePrefetch();
+                    return;
+                }
+                //drop the cards past the end of the adapter if it shrank
+                removeBottomCards(cursor.clampToCount());
+                //if we need to add any cards at this point (ie. the amount of cards on screen
+                //is less than the max number of cards to display) add the cards.
+                int childCount = getChildCount();
+                //only perform action if there are less cards on screen than NUMBER_OF_CARDS
+                if (childCount < NUMBER_OF_CARDS) {
+                    requestLayout();
+                }
+                //cards built ahead of time may show stale data now, build them again
+                cancelPrefetch();
+                schedulePrefetch();
             }
-        }
+
+            @Override
+            public void onInvalidated() {
+                updateCount();
+                invalidateContent();
+                cancelPrefetch();
+                if (adapter.hasStableIds() && getChildCount() > 0) {
+                    reconcileCards(findTopPosition(), true);
+                    return;
+                }
+                //the cards can't be trusted anymore, build them again at the same position
+                recycleAllCards(false);
+                cursor.clampToCount();
+                requestLayout();
+            }
+        };
+
+        if (adapter != null) {
+            adapter.registerDataSetObserver(observer);
+        }
+    }
+
+    /**
+     * Read the item count of the adapter, the deck only asks for it when the adapter
+     * tells us the data changed.
+     */
+    private void updateCount() {
+        if (adapter == null) {
+            cursor.setCount(0);
+        } else {
+            cursor.setCount(endlessAdapter != null ? DeckCursor.COUNT_UNBOUNDED : adapter.getCount());
+        }
+    }
+
+    /**
+     * @return whether the adapter has an item at the given position
+     */
+    private boolean hasItem(int position) {
+        if (!cursor.isInBounds(position)) {
+            return false;
+        }
+        return endlessAdapter == null || endlessAdapter.hasItem(position);
+    }
+
+    /**
+     * Tell the deck items were inserted into the adapter, instead of notifyDataSetChanged().
+     * Cards already on the deck stay where they are unless the items went in between them,
+     * then only the cards below the inserted items are pulled in again.
+     */
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        if (adapter == null || itemCount <= 0) {
+            return;
+        }
+        cancelPrefetch();
+        removeBottomCards(cursor.onItemRangeInserted(positionStart, itemCount));
+        invalidateContent(positionStart);
+        //a layout that leaves the deck as it is won't prefetch again, e.g. after a page appended
+        schedulePrefetch();
+        requestLayout();
+    }
+
+    /**
+     * Tell the deck items were removed from the adapter, instead of notifyDataSetChanged().
+     * Only the cards of the removed items are taken off the deck.
+     */
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        if (adapter == null || itemCount <= 0) {
+            return;
+        }
+        cancelPrefetch();
+        //cards of the removed items go, the ones below them move up
+        int depth = Math.max(0, positionStart - cursor.getTopPosition());
+        removeCards(depth, cursor.onItemRangeRemoved(positionStart, itemCount));
+        invalidateContent(positionStart);
+        schedulePrefetch();
+        requestLayout();
+    }
+
+    /**
+     * Bring the cards on the deck in line with the adapter by their stable ids. Cards whose id
+     * is still found at their new position are kept, nothing is inflated for them. Only the
+     * positions whose id changed get a card from the pool, the cards that no longer belong on
+     * the deck go back into it.
+     *
+     * @param top    adapter position of the top card from now on
+     * @param rebind whether the items may have changed, kept cards are then bound again: an
+     *               item can change under the same id and a plain Adapter has no other way to
+     *               tell us
+     */
+    private void reconcileCards(int top, boolean rebind) {
+        int childCount = getChildCount();
+        if (reconciledCards.length < NUMBER_OF_CARDS) {
+            reconciledCards = new View[NUMBER_OF_CARDS];
+        }
+        View[] cards = reconciledCards;
+        int cardCount = 0;
+        for (; cardCount < NUMBER_OF_CARDS && hasItem(top + cardCount); ++cardCount) {
+            int position = top + cardCount;
+            int viewType = adapter.getItemViewType(position);
+            View card = findCard(adapter.getItemId(position), viewType, cards, cardCount);
+            if (card != null && rebind) {
+                //handed back as convertView, an adapter that ignores it gives us a new card and
+                //the kept one goes back into the pool below
+                card = bindCard(position, viewType, card);
+            }
+            cards[cardCount] = card;
+        }
+
+        //take off every card we don't keep first, so the pool can hand them to the new ones
+        for (int i = childCount - 1; i >= 0; --i) {
+            View child = getChildAt(i);
+            if (indexOf(cards, cardCount, child) < 0) {
+                if (child == topCard) {
+                    swipeListener.unbind();
+                    topCard = null;
+                }
+                removeViewAt(i);
+                recycleCard(child);
+            }
+        }
+
+        //fill the deck from the bottom, moving kept cards to where they belong
+        cursor.reset(top);
+        for (int i = 0; i < cardCount; ++i) {
+            int depth = cardCount - 1 - i;
+            View card = cards[depth];
+            if (card == null || card.getParent() == null) {
+                if (card == null) {
+                    card = obtainCard(top + depth);
+                }
+                if (layerMode == LAYER_MODE_PERMANENT) {
+                    setCardLayer(card, true);
+                }
+                addAndMeasureChild(card, i);
+            } else {
+                if (getChildAt(i) != card) {
+                    detachViewFromParent(card);
+                    attachViewToParent(card, i, card.getLayoutParams());
+                }
+                //binding may have changed what the card shows
+                if (card.isLayoutRequested()) {
+                    card.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                }
+            }
+            cursor.advanceNext();
+        }
+        Arrays.fill(cards, 0, cardCount, null);
+        //kept cards may have moved anywhere in the deck
+        updateElevations(cardCount - 1);
+        invalidateDeckState();
+        requestLayout();
+    }
+
+    /**
+     * @return the card on the deck showing the item with that id and view type,
+     * null if there is none or it was already claimed
+     */
+    private View findCard(long itemId, int viewType, View[] claimed, int claimedCount) {
+        for (int i = getChildCount() - 1; i >= 0; --i) {
+            View child = getChildAt(i);
+            Object id = child.getTag(R.id.swipedeck_item_id);
+            Object type = child.getTag(R.id.swipedeck_view_type);
+            if (id != null && (Long) id == itemId && type != null && (Integer) type == viewType
+                    && indexOf(claimed, claimedCount, child) < 0) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(View[] cards, int count, View card) {
+        for (int i = 0; i < count; ++i) {
+            if (cards[i] == card) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find where the data moved the top of the deck to, by looking for the ids of the cards
+     * on the deck close to where they used to be. If the top card's item is gone the first
+     * card below it that is still around becomes the top card.
+     *
+     * @return the new adapter position of the top card
+     */
+    private int findTopPosition() {
+        int oldTop = cursor.getTopPosition();
+        int childCount = getChildCount();
+        for (int i = childCount - 1; i >= 0; --i) {
+            Object id = getChildAt(i).getTag(R.id.swipedeck_item_id);
+            if (id == null) {
+                continue;
+            }
+            int position = findItemPosition((Long) id, oldTop + childCount - 1 - i);
+            if (position >= 0) {
+                return position;
+            }
+        }
+        return cursor.isUnbounded() ? oldTop : Math.max(0, Math.min(oldTop, cursor.getCount()));
+    }
+
+    /**
+     * Look for an item id around the given position, at most ID_SEARCH_DISTANCE positions away.
+     *
+     * @return the position of the item or -1 if it wasn't found
+     */
+    private int findItemPosition(long itemId, int around) {
+        for (int distance = 0; distance <= ID_SEARCH_DISTANCE; ++distance) {
+            int after = around + distance;
+            if (hasItem(after) && adapter.getItemId(after) == itemId) {
+                return after;
+            }
+            int before = around - distance;
+            if (distance > 0 && hasItem(before) && adapter.getItemId(before) == itemId) {
+                return before;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tell the deck the items in a range changed, instead of notifyDataSetChanged().
+     * Cards on the deck showing those items are bound again in place.
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (adapter == null || itemCount <= 0) {
+            return;
+        }
+        //before the cards are bound again, so they don't get the old content
+        invalidateContent(positionStart);
+        int top = cursor.getTopPosition();
+        int positionEnd = positionStart + itemCount;
+        int cardCount = Math.min(getChildCount(), cursor.getCardCount());
+        for (int depth = Math.max(0, positionStart - top); depth < cardCount && top + depth < positionEnd; ++depth) {
+            rebindCard(getChildCount() - 1 - depth, top + depth);
+        }
+
+        //cards built ahead of time for these items show the old data
+        if (prefetchWindow != null) {
+            for (int position = Math.max(positionStart, cursor.getNextPosition()); position < positionEnd
+                    && position < cursor.getNextPosition() + prefetchWindow.getDepth(); ++position) {
+                View card = prefetchWindow.take(position);
+                if (card != null) {
+                    recycleCard(card);
+                }
+            }
+            schedulePrefetch();
+        }
+    }
+
+    /**
+     * Bind the card at the given index to the item at the given position again,
+     * replacing the card only if the adapter hands back a different one.
+     */
+    private void rebindCard(int index, int position) {
+        View card = getChildAt(index);
+        int viewType = adapter.getItemViewType(position);
+        Object cardViewType = card.getTag(R.id.swipedeck_view_type);
+        boolean sameType = cardViewType != null && (Integer) cardViewType == viewType;
+        View bound = bindCard(position, viewType, sameType ? card : cardPool.obtain(viewType));
+        if (bound == card) {
+            //the new content may need a different layout
+            card.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+            requestLayout();
+            return;
+        }
+
+        if (card == topCard) {
+            swipeListener.unbind();
+            topCard = null;
+        }
+        removeViewAt(index);
+        recycleCard(card);
+        if (layerMode == LAYER_MODE_PERMANENT) {
+            setCardLayer(bound, true);
+        }
+        addAndMeasureChild(bound, index);
+        invalidateDeckState();
+        requestLayout();
+    }
+
+    /**
+     * @return adapter position of the card on top of the deck, or the position the next card
+     * will be pulled in at if the deck is empty
+     */
+    public int getTopCardPosition() {
+        return cursor.getTopPosition();
+    }
+
+
+    /**
+     * Forget the state the cards were last positioned for, so the next layout pass positions
+     * them and sets up the top card again.
+     */
+    /*package*/ void invalidateDeckState() {
+        laidOutChildCount = -1;
+    }
+
+    public void setPosition(int position) {
+        if (adapter != null && hasItem(position)) {
+            cancelPrefetch();
+            if (adapter.hasStableIds() && getChildCount() > 0) {
+                //cards that are still within reach of the new position stay on the deck
+                reconcileCards(position, false);
+                return;
+            }
+            recycleAllCards(false);
+            cursor.reset(position);
+            //an empty deck has no child removal to trigger a layout pass
+            requestLayout();
+        }
+    }
+
+    public View getSelectedView() {
+        throw new UnsupportedOperationException("Not supported");
+    }
+
+    /**
+     * Set whether cards in the deck can be swiped.
+     *
+     * @param swipeable whether cards should be swipeable
+     */
+    public void setSwipeable(boolean swipeable) {
+        this.swipeable = swipeable;
+        swipeListener.setSwipeable(swipeable);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        //no call to super, the deck positions the cards itself (see layoutCards)
+        long start = metrics != null ? System.nanoTime() : 0;
+        layoutDeck();
+        if (metrics != null) {
+            long end = System.nanoTime();
+            metrics.getLayoutTimes().record(end - start);
+            //the deck has been refilled after the swipe, the next card is laid out on top
+            if (swipeCommittedNanos != 0) {
+                metrics.getSwipeToReadyTimes().record(end - swipeCommittedNanos);
+                swipeCommittedNanos = 0;
+            }
+        }
+    }
+
+    private void layoutDeck() {
+        // if we don't have an adapter, we don't need to do anything
+        if (adapter == null) {
+            recycleAllCards(true);
+            return;
+        }
+
+        if (childMeasureSpecsDirty) {
+            updateChildMeasureSpecs();
+        }
+
+        //pull in views from the adapter at the position the top of the deck is set to
+        //stop when you get to for cards or the end of the adapter
+        int childCount = getChildCount();
+        for (int i = childCount; i < NUMBER_OF_CARDS; ++i) {
+            if (!addNextCard()) {
+                break;
+            }
+        }
+
+        boolean deckChanged = cursor.getTopPosition() != laidOutPosition
+                || getChildCount() != laidOutChildCount
+                || getWidth() != laidOutWidth
+                || getHeight() != laidOutHeight;
+        if (!deckChanged) {
+            //nothing about the deck changed, only give the cards a chance to lay out their content
+            layoutCards();
+            return;
+        }
+
+        //position the new children we just added and set up the top card with a listener etc
+        positionViews();
+        setupTopCard();
+        schedulePrefetch();
+
+        laidOutPosition = cursor.getTopPosition();
+        laidOutChildCount = getChildCount();
+        laidOutWidth = getWidth();
+        laidOutHeight = getHeight();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+
+        int width;
+        int height;
+
+        if (widthMode == MeasureSpec.EXACTLY) {
+            //Must be this size
+            width = widthSize;
+        } else if (widthMode == MeasureSpec.AT_MOST) {
+            //Can't be bigger than...
+            width = widthSize;
+        } else {
+            //Be whatever you want
+            width = widthSize;
+        }
+
+        //Measure Height
+        if (heightMode == MeasureSpec.EXACTLY) {
+            //Must be this size
+            height = heightSize;
+        } else if (heightMode == MeasureSpec.AT_MOST) {
+            //Can't be bigger than...
+            height = heightSize;
+        } else {
+            //Be whatever you want
+            height = heightSize;
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (cardsReleased) {
+            //take cards back out of the shared pool
+            cardsReleased = false;
+            requestLayout();
+        }
+        schedulePrefetch();
+        //pick up the animations that were left running when the deck went off screen
+        if (cardAnimator.hasRunningAnimations()) {
+            scheduleAnimationFrame();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (sharedCardPool) {
+            //other decks on screen can use the cards meanwhile
+            cancelPrefetch();
+            recycleAllCards(false);
+            cardsReleased = true;
+        } else if (prefetchScheduled) {
+            //keep what was prefetched, but don't keep building cards for a deck nobody sees
+            Looper.myQueue().removeIdleHandler(prefetchIdleHandler);
+            prefetchScheduled = false;
+        }
+        //don't animate cards nobody sees every frame, they carry on once the deck is back
+        cancelAnimationFrame();
+        releaseSpareSnapshot();
+        releaseDeckShadow();
+        nestedScrollingHelper.onDetachedFromWindow();
+    }
+
+    /**
+     * Drags that start on a clickable child of the top card are taken over once they leave the
+     * touch slop along an axis cards are swiped on, see {@link SwipeListener}.
+     */
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        return swipeListener.onInterceptTouchEvent(ev) || super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        return swipeListener.onDeckTouchEvent(ev) || super.onTouchEvent(ev);
+    }
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        nestedScrollingHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return nestedScrollingHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return nestedScrollingHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        nestedScrollingHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return nestedScrollingHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                        int[] offsetInWindow) {
+        return nestedScrollingHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return nestedScrollingHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return nestedScrollingHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return nestedScrollingHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        childMeasureSpecsDirty = true;
+    }
+
+    /**
+     * Recompute the measure specs for the cards and re-measure the cards we already have.
+     */
+    private void updateChildMeasureSpecs() {
+        int itemWidth = Math.max(0, getWidth() - (paddingLeft + paddingRight));
+        int itemHeight = Math.max(0, getHeight() - (paddingTop + paddingBottom));
+        childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(itemWidth, MeasureSpec.EXACTLY);
+        childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(itemHeight, MeasureSpec.EXACTLY);
+        childMeasureSpecsDirty = false;
+
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            getChildAt(i).measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        }
+    }
+
+    /**
+     * Pull in the card at the next position of the adapter at the bottom of the deck.
+     *
+     * @return false if the adapter has no more items
+     */
+    private boolean addNextCard() {
+        int position = cursor.getNextPosition();
+        if (hasItem(position)) {
+            cursor.advanceNext();
+            View newBottomChild = prefetchWindow != null ? prefetchWindow.take(position) : null;
+            if (newBottomChild == null) {
+                newBottomChild = obtainCard(position);
+            }
+
+            if (layerMode == LAYER_MODE_PERMANENT) {
+                //set backed by an off-screen buffer
+                setCardLayer(newBottomChild, true);
+            }
+
+            addAndMeasureChild(newBottomChild);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get a card for the given adapter position from the adapter.
+     */
+    private View obtainCard(int position) {
+        //hand the adapter a previously swiped card of the same type if we have one
+        int viewType = adapter.getItemViewType(position);
+        return bindCard(position, viewType, cardPool.obtain(viewType));
+    }
+
+    /**
+     * Have the adapter bind the item at the given position, to the convertView if it takes it.
+     */
+    private View bindCard(int position, int viewType, View convertView) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        View card = adapter.getView(position, convertView, this);
+        if (metrics != null) {
+            metrics.getGetViewTimes().record(System.nanoTime() - start);
+        }
+        cardPool.onCardBound(convertView, card);
+        card.setTag(R.id.swipedeck_view_type, viewType);
+        //remember which item the card shows so it can be kept across data changes
+        card.setTag(R.id.swipedeck_item_id, adapter.hasStableIds() ? adapter.getItemId(position) : null);
+        return card;
+    }
+
+    /*package*/ int getPrefetchedCardCount() {
+        return prefetchWindow != null ? prefetchWindow.size() : 0;
+    }
+
+    private void schedulePrefetch() {
+        if (prefetchWindow == null || prefetchScheduled || adapter == null) {
+            return;
+        }
+        prefetchScheduled = true;
+        Looper.myQueue().addIdleHandler(prefetchIdleHandler);
+    }
+
+    /**
+     * Stop prefetching and recycle every card that was built ahead of time.
+     */
+    private void cancelPrefetch() {
+        if (prefetchScheduled) {
+            Looper.myQueue().removeIdleHandler(prefetchIdleHandler);
+            prefetchScheduled = false;
+        }
+        if (prefetchWindow != null) {
+            View card;
+            while ((card = prefetchWindow.takeAny()) != null) {
+                recycleCard(card);
+            }
+        }
+    }
+
+    /**
+     * Build the card for the first position past the visible cards that doesn't have one yet.
+     *
+     * @return whether there are more cards to prefetch
+     */
+    private boolean prefetchNextCard() {
+        if (adapter == null || prefetchWindow == null) {
+            return false;
+        }
+        int first = cursor.getNextPosition();
+        //the deck moved past these, they won't be needed
+        View stale;
+        while ((stale = prefetchWindow.takeStale(first)) != null) {
+            recycleCard(stale);
+        }
+
+        int available = cursor.isUnbounded() ? prefetchWindow.getDepth() : cursor.getCount() - first;
+        int position = prefetchWindow.nextMissing(first, available);
+        if (position < 0 || !hasItem(position)) {
+            return false;
+        }
+        prefetchWindow.put(position, obtainCard(position));
+        return prefetchWindow.nextMissing(first, available) >= 0;
+    }
+
+    /**
+     * Removes every card from the deck and puts them into the recycled card pool.
+     *
+     * @param inLayout whether we are in the middle of a layout pass
+     */
+    private void recycleAllCards(boolean inLayout) {
+        swipeListener.unbind();
+        endExits();
+        for (int i = getChildCount() - 1; i >= 0; --i) {
+            View child = getChildAt(i);
+            if (inLayout) {
+                removeViewInLayout(child);
+            } else {
+                removeViewAt(i);
+            }
+            recycleCard(child);
+        }
+        topCard = null;
+        cursor.rewind();
+        invalidateDeckState();
+    }
+
+    /**
+     * Take cards off the bottom of the deck and put them into the recycled card pool,
+     * the cursor has already moved past them.
+     */
+    private void removeBottomCards(int count) {
+        removeCards(Math.max(0, getChildCount() - count), count);
+    }
+
+    /**
+     * Take cards off the deck and put them into the recycled card pool,
+     * the cursor has already moved past them.
+     *
+     * @param depth depth of the first card to take off, 0 being the top card
+     */
+    private void removeCards(int depth, int count) {
+        int childCount = getChildCount();
+        int end = Math.min(depth + count, childCount);
+        if (depth >= end) {
+            return;
+        }
+        if (depth == 0) {
+            swipeListener.unbind();
+            topCard = null;
+        }
+        for (int i = childCount - 1 - depth; i >= childCount - end; --i) {
+            View child = getChildAt(i);
+            removeViewAt(i);
+            recycleCard(child);
+        }
+        invalidateDeckState();
+    }
+
+    /**
+     * Undo everything the deck did to a card and put it into the recycled card pool.
+     *
+     * @param card a card that has already been removed from the deck
+     */
+    private void recycleCard(View card) {
+        Object viewType = card.getTag(R.id.swipedeck_view_type);
+        if (viewType == null) {
+            return;
+        }
+        //stop whatever the card was doing, its listener is told the animation didn't finish
+        cardAnimator.cancel(card);
+        card.setTranslationX(0);
+        card.setTranslationY(0);
+        card.setRotation(0);
+        card.setAlpha(1);
+        ViewCompat.setTranslationZ(card, 0);
+        setCardLayer(card, false);
+
+        cardPool.release((Integer) viewType, card);
+    }
+
+    /**
+     * @return how many cards were built by reusing a swiped off card
+     */
+    public int getRecycledCardCount() {
+        return cardPool.getRecycledCount();
+    }
+
+    /**
+     * @return how many cards had to be inflated by the adapter
+     */
+    public int getInflatedCardCount() {
+        return cardPool.getInflatedCount();
+    }
+
+    /*package*/ void setupTopCard() {
+        // get top child
+        topCard = getChildAt(getChildCount() - 1);
+        if (topCard != null) {
+            swipeListener.bind(topCard);
+        }
+        //every card moved up, the ones within the budget are raised
+        updateElevations(shadowBudget);
+        preloadContent();
+    }
+
+    /**
+     * Give the cards from the top of the deck down to the given depth their elevation. Depth
+     * only changes for the cards within the budget and the one right below it when a card is
+     * added or the top card changes, so those are all that need an update then.
+     */
+    private void updateElevations(int deepest) {
+        int count = getChildCount();
+        for (int depth = Math.min(deepest, count - 1); depth >= 0; --depth) {
+            setCardElevation(getChildAt(count - 1 - depth), depth);
+        }
+    }
+
+    /**
+     * The top shadowBudget cards are raised one step above each other, the cards below them
+     * don't cast a shadow at all: their own elevation is taken back as well.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void setCardElevation(View card, int depth) {
+        //this is only needed to add shadows to cardviews on > lollipop
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            int levels = Math.min(shadowBudget, NUMBER_OF_CARDS);
+            card.setTranslationZ(depth < levels ? (levels - depth) * ELEVATION_STEP : -card.getElevation());
+        }
+    }
+
+    /**
+     * Adds a view as the bottom card of the deck and takes care of measuring it.
+     * Cards already in the deck are neither detached nor re-measured.
+     *
+     * @param child The view to add
+     */
+    /*package*/ void addAndMeasureChild(View child) {
+        addAndMeasureChild(child, 0);
+    }
+
+    /**
+     * Adds a view at the given index of the deck, 0 being the bottom card.
+     */
+    private void addAndMeasureChild(View child, int index) {
+        ViewGroup.LayoutParams params = child.getLayoutParams();
+        if (params == null) {
+            params = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        }
+
+        //ensure new card is under the deck at the beginning
+        child.setY(paddingTop);
+
+        //a new card normally goes underneath the cards we already have
+        addViewInLayout(child, index, params, true);
+        long start = metrics != null ? System.nanoTime() : 0;
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        if (metrics != null) {
+            metrics.getMeasureTimes().record(System.nanoTime() - start);
+        }
+        //a card added within the budget pushes the cards below it down, one of them drops out
+        int depth = getChildCount() - 1 - index;
+        if (depth < shadowBudget) {
+            updateElevations(shadowBudget);
+        } else {
+            setCardElevation(child, depth);
+        }
+    }
+
+    /**
+     * Lays out every card horizontally centered at the top of the deck.
+     */
+    private void layoutCards() {
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+
+            int width = child.getMeasuredWidth();
+            int height = child.getMeasuredHeight();
+            int left = (getWidth() - width) / 2;
+            child.layout(left, paddingTop, left + width, paddingTop + height);
+        }
+    }
+
+    /**
+     * Positions the children at the "correct" positions
+     */
+    /*package*/ void positionViews() {
+        layoutCards();
+
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            View child = getChildAt(i);
+            // move each child slightly above the previous child (we start with the bottom)
+            int offset = (int) ((childCount - 1 - i) * CARD_SPACING);
+
+            cardAnimator.animate(child, 160, 0, DeckAnimator.ACCELERATE_DECELERATE, null)
+                    .to(DeckAnimator.TRANSLATION_Y, paddingTop + offset - child.getTop());
+        }
+        scheduleAnimationFrame();
+    }
+
+    /**
+     * Make sure the card animator gets the next frame.
+     */
+    private void scheduleAnimationFrame() {
+        if (animationFrameScheduled) {
+            return;
+        }
+        animationFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (choreographerAnimationFrame == null) {
+                choreographerAnimationFrame = new ChoreographerAnimationFrame();
+            }
+            Choreographer.getInstance().postFrameCallback(choreographerAnimationFrame);
+        } else {
+            ViewCompat.postOnAnimation(this, postedAnimationFrame);
+        }
+    }
+
+    private void cancelAnimationFrame() {
+        if (!animationFrameScheduled) {
+            return;
+        }
+        animationFrameScheduled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback(choreographerAnimationFrame);
+        } else {
+            removeCallbacks(postedAnimationFrame);
+        }
+    }
+
+    /*package*/ boolean isAnimationFrameScheduled() {
+        return animationFrameScheduled;
+    }
+
+    private void onAnimationFrame(long frameTimeNanos) {
+        animationFrameScheduled = false;
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean running = cardAnimator.doFrame(frameTimeNanos);
+        if (metrics != null) {
+            metrics.getAnimationFrameTimes().record(System.nanoTime() - start);
+        }
+        //snapshots aren't children, moving them doesn't invalidate the deck
+        if (exitingSnapshotCount > 0) {
+            invalidate();
+        }
+        if (running) {
+            scheduleAnimationFrame();
+        }
+    }
+
+    /*package*/ DeckAnimator<View> getCardAnimator() {
+        return cardAnimator;
+    }
+
+    public void setEventCallback(SwipeEventCallback eventCallback) {
+        this.eventCallback = eventCallback;
+    }
+
+    /**
+     * Set what decides whether a card the user lets go of is swiped off, and in which direction.
+     * Defaults to a {@link SectorSwipeClassifier} for left and right swipes only.
+     */
+    public void setSwipeClassifier(SwipeClassifier classifier) {
+        swipeListener.setClassifier(classifier);
+    }
+
+    public SwipeClassifier getSwipeClassifier() {
+        return swipeListener.getClassifier();
+    }
+
+    /**
+     * Swipe the top card off the deck as if the user did, the event callback is told about it.
+     *
+     * @param direction {@link #SWIPE_LEFT}, {@link #SWIPE_RIGHT}, {@link #SWIPE_UP} or {@link #SWIPE_DOWN}
+     * @param duration  duration of the animation in milliseconds
+     */
+    public void swipeTopCard(int direction, int duration) {
+        swipeCards(1, direction, duration);
+    }
+
+    /**
+     * Swipe a number of cards off the deck in one go. The cards on the deck animate off with
+     * overlapping animations, positions past them are skipped without building their cards.
+     * The deck is laid out once for the whole batch, not once per card.
+     *
+     * @param direction {@link #SWIPE_LEFT}, {@link #SWIPE_RIGHT}, {@link #SWIPE_UP} or {@link #SWIPE_DOWN}
+     */
+    public void swipeCards(int count, int direction) {
+        swipeCards(count, direction, EXIT_DURATION);
+    }
+
+    private void swipeCards(int count, int direction, int duration) {
+        if (adapter == null) {
+            return;
+        }
+        //each card starts a quarter of the way into the previous card's animation
+        int stagger = duration / 4;
+        int started = 0;
+        int swiped = 0;
+        for (int i = 0; i < count; ++i) {
+            int position = cursor.getTopPosition();
+            View card = getChildAt(getChildCount() - 1);
+            if (card != null) {
+                animateOffScreen(card, direction, duration, started++ * stagger);
+            } else if (hasItem(position)) {
+                //past the cards on the deck, skipped without ever building a card
+                cursor.reset(position + 1);
+            } else {
+                break;
+            }
+            swiped++;
+            dispatchSwipe(direction, position);
+        }
+        if (swiped > 0) {
+            onSwipeCommitted();
+        }
+    }
+
+    private void dispatchSwipe(int direction, int position) {
+        if (eventCallback == null) {
+            return;
+        }
+        switch (direction) {
+            case SWIPE_RIGHT:
+                eventCallback.onCardSwipedRight(position);
+                break;
+            case SWIPE_UP:
+                if (eventCallback instanceof DirectionalSwipeEventCallback) {
+                    ((DirectionalSwipeEventCallback) eventCallback).onCardSwipedUp(position);
+                }
+                break;
+            case SWIPE_DOWN:
+                if (eventCallback instanceof DirectionalSwipeEventCallback) {
+                    ((DirectionalSwipeEventCallback) eventCallback).onCardSwipedDown(position);
+                }
+                break;
+            default:
+                eventCallback.onCardSwipedLeft(position);
+                break;
+        }
+    }
+
+    public void animateCardReset(final View card) {
+        if (resetAnimationTracker != null) {
+            resetAnimationTracker.start();
+        }
+        //a spring, picking the card up again stops it wherever it is
+        cardAnimator.animate(card, 0, 0, DeckAnimator.LINEAR, resetListener)
+                .springTo(DeckAnimator.TRANSLATION_X, paddingLeft - card.getLeft(), DeckPhysics.RESET_STIFFNESS)
+                .springTo(DeckAnimator.TRANSLATION_Y, paddingTop - card.getTop(), DeckPhysics.RESET_STIFFNESS)
+                .springTo(DeckAnimator.ROTATION, 0, DeckPhysics.RESET_STIFFNESS);
+        scheduleAnimationFrame();
+    }
+
+    /**
+     * Fling a card off the deck, it keeps the velocity of the finger until friction would
+     * make it take too long to get off the deck.
+     *
+     * @param velocityX pixels per second
+     */
+    private void animateOffScreen(View deckCard, int direction, float velocityX, float velocityY) {
+        View card = startExit(deckCard);
+        boolean horizontal = direction == SWIPE_LEFT || direction == SWIPE_RIGHT;
+        //until the card's far edge is past that side of the deck
+        float distance;
+        switch (direction) {
+            case SWIPE_LEFT:
+                distance = -(card.getX() + card.getWidth());
+                break;
+            case SWIPE_RIGHT:
+                distance = getWidth() - card.getX();
+                break;
+            case SWIPE_UP:
+                distance = -(card.getY() + card.getHeight());
+                break;
+            default:
+                distance = getHeight() - card.getY();
+                break;
+        }
+        float velocity = horizontal ? velocityX : velocityY;
+        float fling = DeckPhysics.flingVelocity(distance, velocity, DeckPhysics.FLING_FRICTION,
+                DeckPhysics.MAX_FLING_SECONDS);
+        //the other axis is sped up along with it, so the card keeps the direction of the fling
+        float minCrossScaled = DeckPhysics.MIN_CROSS_SCALED_VELOCITY_DP * getResources().getDisplayMetrics().density;
+        float across = DeckPhysics.crossVelocity(velocity, horizontal ? velocityY : velocityX, fling, minCrossScaled);
+        long duration = DeckPhysics.flingDurationNanos(distance, fling, DeckPhysics.FLING_FRICTION);
+        long durationMillis = (duration + 999999) / 1000000;
+        cardAnimator.animate(card, durationMillis, 0, DeckAnimator.ACCELERATE_DECELERATE, exitListener)
+                .fling(DeckAnimator.TRANSLATION_X, horizontal ? fling : across, DeckPhysics.FLING_FRICTION)
+                .fling(DeckAnimator.TRANSLATION_Y, horizontal ? across : fling, DeckPhysics.FLING_FRICTION)
+                .to(DeckAnimator.ALPHA, 0);
+        scheduleAnimationFrame();
+    }
+
+    /**
+     * Move a card off the deck for a programmatic swipe: off the side of the deck in line
+     * with its top edge, or straight off the top or bottom.
+     */
+    private void animateOffScreen(View deckCard, int direction, int duration, int startDelay) {
+        View card = startExit(deckCard);
+        cardAnimator.animate(card, duration, startDelay, DeckAnimator.ACCELERATE_DECELERATE, exitListener)
+                .to(DeckAnimator.ALPHA, 0);
+        switch (direction) {
+            case SWIPE_LEFT:
+            case SWIPE_RIGHT:
+                boolean right = direction == SWIPE_RIGHT;
+                float x = right ? getWidth() : -getWidth();
+                cardAnimator.to(DeckAnimator.TRANSLATION_X, x - card.getLeft())
+                        .to(DeckAnimator.TRANSLATION_Y, -card.getTop())
+                        .to(DeckAnimator.ROTATION, right ? 30 : -30);
+                break;
+            case SWIPE_UP:
+                cardAnimator.to(DeckAnimator.TRANSLATION_Y, -card.getBottom());
+                break;
+            default:
+                cardAnimator.to(DeckAnimator.TRANSLATION_Y, getHeight() - card.getTop());
+                break;
+        }
+        scheduleAnimationFrame();
+    }
+
+    /**
+     * Take a card off the deck as its exit animation starts. It stays on screen as a disappearing
+     * view until the animation is done, or is replaced by a snapshot and recycled right away with
+     * {@link #EXIT_MODE_SNAPSHOT}. The deck is ready for the next swipe either way.
+     *
+     * @return what to animate off the deck, its exit animation has to use {@link #exitListener}
+     */
+    private View startExit(View card) {
+        CardSnapshot snapshot = null;
+        if (exitMode == EXIT_MODE_SNAPSHOT && card.getWidth() > 0 && card.getHeight() > 0) {
+            snapshot = spareSnapshot != null ? spareSnapshot : new CardSnapshot(getContext());
+            spareSnapshot = null;
+            snapshot.capture(card);
+        } else {
+            promoteLayer(card);
+        }
+        if (metrics != null) {
+            swipeCommittedNanos = System.nanoTime();
+        }
+        if (exitAnimationTracker != null && exitingCards.isEmpty()) {
+            exitAnimationTracker.start();
+        }
+        if (card == topCard) {
+            swipeListener.unbind();
+            topCard = null;
+        }
+        if (snapshot != null) {
+            exitingCards.add(snapshot);
+            ++exitingSnapshotCount;
+            removeView(card);
+            recycleCard(card);
+            invalidate();
+        } else {
+            exitingCards.add(card);
+            startViewTransition(card);
+            removeView(card);
+        }
+        cursor.advanceTop();
+        return snapshot != null ? snapshot : card;
+    }
+
+    /**
+     * One or more swipes were committed, put the next card on top and refill the deck.
+     */
+    private void onSwipeCommitted() {
+        invalidateDeckState();
+
+        //if there are no more children left let the callback know
+        if (getChildCount() <= 0 && !hasItem(cursor.getNextPosition())) {
+            if (eventCallback != null) {
+                eventCallback.onCardsDepleted();
+            }
+        } else {
+            setupTopCard();
+        }
+        requestLayout();
+    }
+
+    /*package*/ void onExitAnimationEnd(View card) {
+        if (!exitingCards.remove(card)) {
+            return;
+        }
+        if (card instanceof CardSnapshot) {
+            --exitingSnapshotCount;
+            cardAnimator.cancel(card);
+            if (spareSnapshot == null && exitMode == EXIT_MODE_SNAPSHOT) {
+                spareSnapshot = (CardSnapshot) card;
+            } else {
+                ((CardSnapshot) card).release();
+            }
+            invalidate();
+        } else {
+            endViewTransition(card);
+            recycleCard(card);
+        }
+        if (exitingCards.isEmpty() && exitAnimationTracker != null) {
+            exitAnimationTracker.stop();
+        }
+    }
+
+    /**
+     * Cut every exit animation short and recycle the cards.
+     */
+    private void endExits() {
+        while (!exitingCards.isEmpty()) {
+            onExitAnimationEnd(exitingCards.get(exitingCards.size() - 1));
+        }
+    }
+
+    private void releaseSpareSnapshot() {
+        if (spareSnapshot != null) {
+            spareSnapshot.release();
+            spareSnapshot = null;
+        }
+    }
+
+    /*package*/ int getExitingSnapshotCount() {
+        return exitingSnapshotCount;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        culledCardCount = 0;
+        if (occlusionCulling) {
+            computeOcclusion();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && getChildCount() > shadowBudget) {
+            drawDeckShadow(canvas);
+        }
+        super.dispatchDraw(canvas);
+        //swiped cards go over the rest of the deck, like the disappearing views they replace
+        for (int i = 0, count = exitingSnapshotCount > 0 ? exitingCards.size() : 0; i < count; ++i) {
+            View exiting = exitingCards.get(i);
+            if (exiting instanceof CardSnapshot) {
+                ((CardSnapshot) exiting).draw(canvas, snapshotPaint);
+            }
+        }
+    }
+
+    /**
+     * Draw one shadow under the cards past the shadow budget, around all of them.
+     */
+    private void drawDeckShadow(Canvas canvas) {
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = getChildCount() - 1 - Math.max(shadowBudget, 0); i >= 0; --i) {
+            View card = getChildAt(i);
+            if (card.getVisibility() != VISIBLE) {
+                continue;
+            }
+            left = Math.min(left, card.getLeft() + card.getTranslationX());
+            top = Math.min(top, card.getTop() + card.getTranslationY());
+            right = Math.max(right, card.getRight() + card.getTranslationX());
+            bottom = Math.max(bottom, card.getBottom() + card.getTranslationY());
+        }
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        if (deckShadow == null) {
+            float density = getResources().getDisplayMetrics().density;
+            deckShadow = new DeckShadow(SHADOW_BLUR_DP * density, cardCornerRadius,
+                    SHADOW_OFFSET_DP * density, SHADOW_COLOR);
+        }
+        deckShadow.draw(canvas, left, top, right, bottom);
+        ++deckShadowDrawCount;
+    }
+
+    /*package*/ int getDeckShadowDrawCount() {
+        return deckShadowDrawCount;
+    }
+
+    private void releaseDeckShadow() {
+        if (deckShadow != null) {
+            deckShadow.release();
+            deckShadow = null;
+        }
+    }
+
+    /**
+     * Work out what can be seen of every card as it is about to be drawn.
+     */
+    private void computeOcclusion() {
+        int count = getChildCount();
+        occlusion.reset(count);
+        for (int i = 0; i < count; ++i) {
+            View card = getChildAt(i);
+            occlusion.setCard(i, card.getLeft(), card.getTop(), card.getRight(), card.getBottom(),
+                    card.getVisibility() == VISIBLE && card.getAlpha() >= 1);
+            occlusion.setTransform(i, card.getTranslationX(), card.getTranslationY(), card.getRotation(),
+                    card.getScaleX(), card.getScaleY(), card.getPivotX(), card.getPivotY());
+        }
+        occlusion.compute(cardCornerRadius);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        //views that are disappearing aren't children anymore and are drawn as they are
+        int index = occlusionCulling ? indexOfChild(child) : -1;
+        if (index < 0 || occlusion.isFullyExposed(index)) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        if (!occlusion.isExposed(index)) {
+            ++culledCardCount;
+            return false;
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(occlusion.getClipLeft(index), occlusion.getClipTop(index),
+                occlusion.getClipRight(index), occlusion.getClipBottom(index));
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return more;
+    }
+
+    /**
+     * @deprecated the deck animates its cards itself, use {@link #swipeTopCard(int, int)}
+     */
+    @Deprecated
+    public ViewPropertyAnimator animateOffScreenLeft(View card, int duration) {
+        return card.animate()
+                .setDuration(duration)
+                .x(getWidth() * -1)
+                .y(0)
+                .rotation(-30);
+    }
+
+    /**
+     * @deprecated the deck animates its cards itself, use {@link #swipeTopCard(int, int)}
+     */
+    @Deprecated
+    public ViewPropertyAnimator animateOffScreenRight(View card, int duration) {
+        return card.animate()
+                .setDuration(duration)
+                .x(getWidth())
+                .y(0)
+                .rotation(30);
+    }
+
+    /**
+     * An adapter for feeds whose size isn't known up front or is too big to count. The deck
+     * never calls getCount() on it, it asks {@link #hasItem(int)} before pulling in a card.
+     * When hasItem returns false the deck runs out of cards as usual, once more items are
+     * loaded call {@link SwipeDeck#notifyItemRangeInserted(int, int)} to continue.
+     */
+    public interface EndlessAdapter extends android.widget.Adapter {
+        /**
+         * Called for every card the deck is about to pull in, should be cheap.
+         *
+         * @return whether an item is available at the position yet
+         */
+        boolean hasItem(int position);
+    }
+
+    /**
+     * Holds on to the views of a card, so binding an item doesn't have to look them up again.
+     */
+    public static abstract class ViewHolder {
+
+        public final View itemView;
+        /*package*/ int itemViewType;
+
+        public ViewHolder(View itemView) {
+            if (itemView == null) {
+                throw new IllegalArgumentException("itemView may not be null");
+            }
+            this.itemView = itemView;
+        }
+
+        public final int getItemViewType() {
+            return itemViewType;
+        }
+    }
+
+    /**
+     * Adapter for the deck with separate steps to create a card and to bind an item to it.
+     * Cards swiped off the deck come back to {@link #onBindViewHolder} for new items.
+     * Report changes with the most specific notify method, the deck then only touches
+     * the cards the change affects.
+     */
+    public static abstract class Adapter<VH extends ViewHolder> {
+
+        public static final long NO_ID = -1;
+
+        private final ArrayList<AdapterObserver> observers = new ArrayList<>();
+        private boolean hasStableIds;
+
+        public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+        public abstract void onBindViewHolder(VH holder, int position);
+
+        public abstract int getItemCount();
+
+        public int getItemViewType(int position) {
+            return 0;
+        }
+
+        /**
+         * Only used when the adapter has stable ids, see {@link #setHasStableIds(boolean)}.
+         */
+        public long getItemId(int position) {
+            return NO_ID;
+        }
+
+        /**
+         * With stable ids the deck keeps the cards whose items are still there when
+         * {@link #notifyDataSetChanged()} is called, instead of binding every card again.
+         */
+        public void setHasStableIds(boolean hasStableIds) {
+            this.hasStableIds = hasStableIds;
+        }
+
+        public boolean hasStableIds() {
+            return hasStableIds;
+        }
+
+        public final void notifyDataSetChanged() {
+            for (int i = observers.size() - 1; i >= 0; --i) {
+                observers.get(i).onChanged();
+            }
+        }
+
+        public final void notifyItemChanged(int position) {
+            notifyItemRangeChanged(position, 1);
+        }
+
+        public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+            for (int i = observers.size() - 1; i >= 0; --i) {
+                observers.get(i).onItemRangeChanged(positionStart, itemCount);
+            }
+        }
+
+        public final void notifyItemInserted(int position) {
+            notifyItemRangeInserted(position, 1);
+        }
+
+        public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+            for (int i = observers.size() - 1; i >= 0; --i) {
+                observers.get(i).onItemRangeInserted(positionStart, itemCount);
+            }
+        }
+
+        public final void notifyItemRemoved(int position) {
+            notifyItemRangeRemoved(position, 1);
+        }
+
+        public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+            for (int i = observers.size() - 1; i >= 0; --i) {
+                observers.get(i).onItemRangeRemoved(positionStart, itemCount);
+            }
+        }
+
+        /*package*/ void registerObserver(AdapterObserver observer) {
+            if (!observers.contains(observer)) {
+                observers.add(observer);
+            }
+        }
+
+        /*package*/ void unregisterObserver(AdapterObserver observer) {
+            observers.remove(observer);
+        }
+    }
+
+    /*package*/ interface AdapterObserver {
+        void onChanged();
+
+        void onItemRangeChanged(int positionStart, int itemCount);
+
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+    }
+
+    /**
+     * Feeds the changes a view holder adapter reports into the deck.
+     */
+    private class ViewHolderAdapterObserver implements AdapterObserver {
+        @Override
+        public void onChanged() {
+            if (adapter instanceof ViewHolderAdapterBridge) {
+                ((ViewHolderAdapterBridge<?>) adapter).notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    public interface SwipeEventCallback {
+        //returning the object position in the adapter
+        void onCardSwipedLeft(int position);
+
+        void onCardSwipedRight(int position);
+
+        void onCardsDepleted();
+
+        void onCardClicked(int position);
+
+        //rotation of the dragged card, at most once a frame
+        void onCardMove(float value);
+    }
+
+    /**
+     * A callback that also hears about cards swiped up and down, see {@link SectorSwipeClassifier}.
+     * A plain {@link SwipeEventCallback} isn't told about those swipes.
+     */
+    public interface DirectionalSwipeEventCallback extends SwipeEventCallback {
+        void onCardSwipedUp(int position);
+
+        void onCardSwipedDown(int position);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class ChoreographerAnimationFrame implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onAnimationFrame(frameTimeNanos);
+        }
+    }
+
+    private static class CardProperties implements DeckAnimator.Properties<View> {
+        @Override
+        public float get(View card, int property) {
+            switch (property) {
+                case DeckAnimator.TRANSLATION_X:
+                    return card.getTranslationX();
+                case DeckAnimator.TRANSLATION_Y:
+                    return card.getTranslationY();
+                case DeckAnimator.ROTATION:
+                    return card.getRotation();
+                case DeckAnimator.SCALE_X:
+                    return card.getScaleX();
+                case DeckAnimator.SCALE_Y:
+                    return card.getScaleY();
+                default:
+                    return card.getAlpha();
+            }
+        }
+
+        @Override
+        public void set(View card, int property, float value) {
+            switch (property) {
+                case DeckAnimator.TRANSLATION_X:
+                    card.setTranslationX(value);
+                    break;
+                case DeckAnimator.TRANSLATION_Y:
+                    card.setTranslationY(value);
+                    break;
+                case DeckAnimator.ROTATION:
+                    card.setRotation(value);
+                    break;
+                case DeckAnimator.SCALE_X:
+                    card.setScaleX(value);
+                    break;
+                case DeckAnimator.SCALE_Y:
+                    card.setScaleY(value);
+                    break;
+                default:
+                    card.setAlpha(value);
+                    break;
+            }
+        }
+    }
+
+    private class SwipeDeckCallback implements SwipeListener.SwipeCallback {
+        @Override
+        public void onCardSwiped(int direction, float velocityX, float velocityY) {
+            int positionInAdapter = cursor.getTopPosition();
+            animateOffScreen(topCard, direction, velocityX, velocityY);
+            dispatchSwipe(direction, positionInAdapter);
+            onSwipeCommitted();
+        }
+
+        @Override
+        public void onCardClicked() {
+            int positionInAdapter = cursor.getTopPosition();
+            if (eventCallback != null) {
+                eventCallback.onCardClicked(positionInAdapter);
+            }
+        }
 
         @Override
         public void onCardReset() {
             animateCardReset(topCard);
         }
 
+        @Override
+        public void onCardDragStart() {
+            //the finger takes over from a reset that is still running
+            cardAnimator.cancel(topCard);
+            promoteLayer(topCard);
+        }
+
         @Override
         public void onCardMove(float value) {
             if (eventCallback != null) {
@@ -0,0 +1,131 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Timings collected by a {@link SwipeDeck} once set with {@link SwipeDeck#setMetrics(SwipeDeckMetrics)}.
+ * All times are in nanoseconds. A deck without metrics doesn't measure anything.
+ */
+public class SwipeDeckMetrics {
+
+    public static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L;
+
+    private static final long MICROS = 1000L;
+    private static final long MILLIS = 1000L * MICROS;
+
+    private final Histogram getViewTimes = newTimeHistogram();
+    private final Histogram measureTimes = newTimeHistogram();
+    private final Histogram layoutTimes = newTimeHistogram();
+    private final Histogram exitAnimationTimes = newTimeHistogram();
+    private final Histogram exitAnimationDroppedFrames = newFrameHistogram();
+    private final Histogram resetAnimationTimes = newTimeHistogram();
+    private final Histogram resetAnimationDroppedFrames = newFrameHistogram();
+    private final Histogram swipeToReadyTimes = newTimeHistogram();
+    private final Histogram animationFrameTimes = newTimeHistogram();
+
+    private long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    private static Histogram newTimeHistogram() {
+        return new Histogram(100 * MICROS, 250 * MICROS, 500 * MICROS, MILLIS, 2 * MILLIS, 4 * MILLIS,
+                8 * MILLIS, 16 * MILLIS, 33 * MILLIS, 66 * MILLIS, 133 * MILLIS, 266 * MILLIS, 533 * MILLIS);
+    }
+
+    private static Histogram newFrameHistogram() {
+        return new Histogram(0, 1, 2, 4, 8, 16);
+    }
+
+    /**
+     * Number of frames missed between two frames that were delta nanoseconds apart.
+     */
+    public static int droppedFrames(long frameDeltaNanos, long frameIntervalNanos) {
+        // allow half a frame of jitter before we call it a drop
+        long missed = (frameDeltaNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1;
+        return missed > 0 ? (int) missed : 0;
+    }
+
+    /**
+     * Set the display frame interval used to count dropped frames, defaults to 60Hz.
+     */
+    public void setFrameIntervalNanos(long frameIntervalNanos) {
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    /**
+     * @return time spent in the adapter's getView for each card
+     */
+    public Histogram getGetViewTimes() {
+        return getViewTimes;
+    }
+
+    /**
+     * @return time spent measuring each card added to the deck
+     */
+    public Histogram getMeasureTimes() {
+        return measureTimes;
+    }
+
+    /**
+     * @return time spent in each layout pass of the deck
+     */
+    public Histogram getLayoutTimes() {
+        return layoutTimes;
+    }
+
+    /**
+     * @return duration of each animation moving a swiped card off screen
+     */
+    public Histogram getExitAnimationTimes() {
+        return exitAnimationTimes;
+    }
+
+    /**
+     * @return frames dropped during each animation moving a swiped card off screen
+     */
+    public Histogram getExitAnimationDroppedFrames() {
+        return exitAnimationDroppedFrames;
+    }
+
+    /**
+     * @return duration of each animation moving a released card back in place
+     */
+    public Histogram getResetAnimationTimes() {
+        return resetAnimationTimes;
+    }
+
+    /**
+     * @return frames dropped during each animation moving a released card back in place
+     */
+    public Histogram getResetAnimationDroppedFrames() {
+        return resetAnimationDroppedFrames;
+    }
+
+    /**
+     * @return time from a swipe being committed until the layout pass that refilled the deck after
+     * it, with the next card laid out on top. A swipe committed before the previous one got its
+     * layout pass is counted with it, from the later swipe.
+     */
+    public Histogram getSwipeToReadyTimes() {
+        return swipeToReadyTimes;
+    }
+
+    /**
+     * @return time the deck's card animator spent on each frame, all animating cards together
+     */
+    public Histogram getAnimationFrameTimes() {
+        return animationFrameTimes;
+    }
+
+    public void reset() {
+        getViewTimes.reset();
+        measureTimes.reset();
+        layoutTimes.reset();
+        exitAnimationTimes.reset();
+        exitAnimationDroppedFrames.reset();
+        resetAnimationTimes.reset();
+        resetAnimationDroppedFrames.reset();
+        swipeToReadyTimes.reset();
+        animationFrameTimes.reset();
+    }
+}
@@ -1,11 +1,13 @@
 package com.daprlabs.cardstack;
 
-import android.util.Log;
-import android.view.GestureDetector;
+import android.content.Context;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.ViewCompat;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
 /**
  * Created by aaron on 4/12/2015.
@@ -14,169 +16,439 @@ public class SwipeListener implements View.OnTouchListener {
 
     private final int flingSlop;
     private final int touchSlop;
-    private final GestureDetector gestureDetector;
     private float rotationDegrees = 15f;
     private float initialX;
     private float initialY;
-
-    private int mActivePointerId;
-    private float initialXPress;
-    private float initialYPress;
     private float parentWidth;
 
     private View card;
+    private ViewGroup deck;
     private SwipeCallback callback;
     private boolean swipeable;
-    private boolean isDragging = true;
+    private SwipeClassifier classifier;
 
+    private final DragTracker tracker;
+    //where the card was when the pointers started to move it, the tracker's offsets add to it
+    private float anchorX;
+    private float anchorY;
+    //where the drag puts the card on the next frame, moves are applied once per frame
+    private float pendingX;
+    private float pendingY;
+    private boolean movePending;
+    private final Runnable moveFrame = new Runnable() {
+        @Override
+        public void run() {
+            applyMove();
+        }
+    };
+    //whether the card's own listener got the gesture, otherwise the deck tracks it by intercepting
+    private boolean cardHasTouch;
+    //a rejected gesture the deck passes on to a nested scrolling parent
+    private boolean nestedScrolling;
+    private float scrollRemainderX;
+    private float scrollRemainderY;
+    private final int[] scrollConsumed = new int[2];
 
-    public SwipeListener(View card, final SwipeCallback callback, int initialX, int initialY, float rotation) {
-        this.card = card;
+
+    /**
+     * Creates a listener that isn't attached to any card yet, see {@link #bind(View)}.
+     * One listener is meant to serve every card of a deck, so the slops and the drag
+     * tracker are only set up once here.
+     */
+    public SwipeListener(Context context, final SwipeCallback callback, int initialX, int initialY, float rotation) {
         this.initialX = initialX;
         this.initialY = initialY;
         this.callback = callback;
-        this.parentWidth = ((ViewGroup) card.getParent()).getWidth();
         this.rotationDegrees = rotation;
 
-        ViewConfiguration viewConfiguration = ViewConfiguration.get(card.getContext());
+        ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
         flingSlop = viewConfiguration.getScaledMinimumFlingVelocity();
         touchSlop = viewConfiguration.getScaledTouchSlop();
-        gestureDetector = new GestureDetector(card.getContext(), new GestureListener());
+        tracker = new DragTracker(touchSlop);
+        classifier = new SectorSwipeClassifier(flingSlop);
+    }
+
+    /**
+     * @param classifier decides which releases swipe the card, see {@link SwipeDeck#setSwipeClassifier}
+     */
+    public void setClassifier(SwipeClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    public SwipeClassifier getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * Retarget the listener at a new card and attach it as that card's touch listener.
+     * The previously bound card, if any, stops receiving touches.
+     *
+     * @param card card that is now on top of the deck, it must already be in the deck
+     */
+    public void bind(View card) {
+        if (this.card == card) {
+            return;
+        }
+        unbind();
+        this.card = card;
+        this.deck = (ViewGroup) card.getParent();
+        this.parentWidth = deck.getWidth();
+        card.setOnTouchListener(this);
+    }
+
+    /**
+     * Detach the listener from the card it is bound to, a gesture still going on is dropped.
+     */
+    public void unbind() {
+        if (card != null) {
+            card.setOnTouchListener(null);
+            card.removeCallbacks(moveFrame);
+            movePending = false;
+            tracker.onCancel();
+            stopNestedScroll();
+            card = null;
+        }
     }
 
+    public View getCard() {
+        return card;
+    }
 
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        // We got a recognized fling event, it would call listener by itself, stop here
-        boolean consumed = gestureDetector.onTouchEvent(event);
-        if (event.getAction() == MotionEvent.ACTION_MOVE) {
+        // touches still arriving for a card we are no longer bound to
+        if (v != card) {
             return false;
         }
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            cardHasTouch = true;
+        }
+        // pointers are tracked in the deck's coordinates, the card moves under them
+        return onTouchEvent(event, card.getX(), card.getY());
+    }
 
-        return consumed;
-//        switch (event.getAction() & MotionEvent.ACTION_MASK) {
-//
-//            case MotionEvent.ACTION_DOWN:
-//                isDragging = false;
-//                mActivePointerId = event.getPointerId(0);
-//
-//
-//                break;
-//
-//            case MotionEvent.ACTION_MOVE:
-//                //gesture is in progress
-//
-//                final int pointerIndex = event.findPointerIndex(mActivePointerId);
-//                if (pointerIndex != 0) {
-//                    break;
-//                }
-//
-//                //calculate distance moved
-//                final float dx = event.getX(pointerIndex) - initialXPress;
-//                final float dy = event.getY(pointerIndex) - initialYPress;
-//
-//                // if touch deviated from original point too much, it's definitely not a click
-//                if (Math.abs(dx) + Math.abs(dy) > touchSlop) {
-//                    isDragging = true;
-//                }
-//
-//                if (!isDragging) {
-//                    return false;
-//                }
-//
-//                if (!swipeable) {
-//                    return false;
-//                }
-//
-//                float posX = card.getX() + dx;
-//                float posY = card.getY() + dy;
-//                card.setX(posX);
-//                card.setY(posY);
-//
-//                float distObjectX = posX - initialX;
-//                float rotation = rotationDegrees * 2.f * distObjectX / parentWidth;
-//                card.setRotation(rotation);
-//                callback.onCardMove(rotation);
-//                break;
-//
-//            case MotionEvent.ACTION_UP:
-//                if (isDragging) {
-//                    callback.onCardReset();
-//                } else {
-//                    callback.onCardClicked();
-//                }
-//                break;
-//
-//            default:
-//                return false;
-//        }
-//        return true;
+    /**
+     * Called by the deck before any card sees an event. Until the card's own listener gets the
+     * gesture, when a child of the card took the down, the deck tracks the gesture from here.
+     *
+     * @return whether the deck takes the gesture over from the card's children
+     */
+    /*package*/ boolean onInterceptTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            cardHasTouch = false;
+        }
+        if (card == null || cardHasTouch) {
+            return false;
+        }
+        onTouchEvent(event, 0, 0);
+        return tracker.isDragging() || nestedScrolling;
     }
 
-    public void setSwipeable(boolean swipeable) {
-        this.swipeable = swipeable;
+    /**
+     * Called with the events of a gesture the deck intercepted.
+     */
+    /*package*/ boolean onDeckTouchEvent(MotionEvent event) {
+        if (card == null || cardHasTouch) {
+            return false;
+        }
+        return onTouchEvent(event, 0, 0);
     }
 
-    /*package*/ interface SwipeCallback {
-        void onCardSwipedLeft(float velocityX, float velocityY);
+    /**
+     * @param left where the event's coordinates are relative to in the deck
+     */
+    private boolean onTouchEvent(MotionEvent event, float left, float top) {
+        boolean active = tracker.isTracking() || tracker.isRejected();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN: {
+                float x = left + event.getX();
+                float y = top + event.getY();
+                if (!hitsCard(x, y)) {
+                    tracker.onCancel();
+                    return false;
+                }
+                updateAxes();
+                onTrackerResult(tracker.onDown(event.getPointerId(0), x, y, event.getEventTime()));
+                // parents don't get to steal the gesture before it left the slop, see RESULT_REJECT
+                requestDisallowIntercept(true);
+                startNestedScroll();
+                return true;
+            }
 
-        void onCardSwipedRight(float velocityX, float velocityY);
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                int index = event.getActionIndex();
+                onTrackerResult(tracker.onPointerDown(event.getPointerId(index),
+                        left + event.getX(index), top + event.getY(index)));
+                break;
+            }
 
-        void onCardClicked();
+            case MotionEvent.ACTION_MOVE:
+                trackMove(event, left, top);
+                break;
 
-        void onCardReset();
+            case MotionEvent.ACTION_POINTER_UP: {
+                int index = event.getActionIndex();
+                // any pointer that stays down can take over
+                int next = index == 0 ? 1 : 0;
+                onTrackerResult(tracker.onPointerUp(event.getPointerId(index), event.getPointerId(next),
+                        left + event.getX(next), top + event.getY(next)));
+                break;
+            }
 
-        void onCardMove(float value);
+            case MotionEvent.ACTION_UP:
+                onTrackerResult(tracker.onUp(event.getPointerId(0),
+                        left + event.getX(), top + event.getY(), event.getEventTime()));
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                onTrackerResult(tracker.onCancel());
+                break;
+
+            default:
+                return false;
+        }
+        return active;
     }
 
+    private boolean hitsCard(float x, float y) {
+        return x >= card.getX() && x < card.getX() + card.getWidth()
+                && y >= card.getY() && y < card.getY() + card.getHeight();
+    }
 
-    private class GestureListener extends GestureDetector.SimpleOnGestureListener {
+    /**
+     * Only drag cards along the axes the classifier can swipe them on, gestures along the other
+     * axis are left to scrolling parents.
+     */
+    private void updateAxes() {
+        if (classifier instanceof SectorSwipeClassifier) {
+            SectorSwipeClassifier sectors = (SectorSwipeClassifier) classifier;
+            tracker.setAxes(sectors.getSectorAngle(SwipeDeck.SWIPE_LEFT) > 0
+                            || sectors.getSectorAngle(SwipeDeck.SWIPE_RIGHT) > 0,
+                    sectors.getSectorAngle(SwipeDeck.SWIPE_UP) > 0
+                            || sectors.getSectorAngle(SwipeDeck.SWIPE_DOWN) > 0);
+        } else {
+            tracker.setAxes(true, true);
+        }
+    }
 
-        @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            if (e1 == null || e2 == null) {
-                return false;
-            }
-                final float dx = e2.getX() - initialXPress;
-                final float dy = e2.getY() - initialYPress;
-            float posX = card.getX() + dx;
-            float posY = card.getY() + dy;
-            card.setX(posX);
-            card.setY(posY);
+    /**
+     * Track every sample of the active pointer, the event batches all of them since the previous one.
+     */
+    private void trackMove(MotionEvent event, float left, float top) {
+        int pointerId = tracker.getActivePointerId();
+        int index = event.findPointerIndex(pointerId);
+        if (index < 0) {
+            return;
+        }
+        for (int i = 0, size = event.getHistorySize(); i < size; ++i) {
+            onTrackerResult(tracker.onMove(pointerId, left + event.getHistoricalX(index, i),
+                    top + event.getHistoricalY(index, i), event.getHistoricalEventTime(i)));
+        }
+        onTrackerResult(tracker.onMove(pointerId, left + event.getX(index), top + event.getY(index),
+                event.getEventTime()));
+    }
+
+    private void onTrackerResult(int result) {
+        switch (result) {
+            case DragTracker.RESULT_DRAG_START:
+                // the gesture is the card's, a nested scrolling parent gets none of it
+                stopNestedScroll();
+                callback.onCardDragStart();
+                // the card catches up with the slop, it keeps the spot it was pressed at under the finger
+                anchorX = card.getX();
+                anchorY = card.getY();
+                postMove();
+                break;
+
+            case DragTracker.RESULT_DRAG:
+                postMove();
+                break;
 
-            float distObjectX = posX - initialX;
-            float rotation = rotationDegrees * 2.f * distObjectX / parentWidth;
-            card.setRotation(rotation);
-            return true;
+            case DragTracker.RESULT_RELEASE:
+                release(tracker.getVelocityX(), tracker.getVelocityY());
+                break;
+
+            case DragTracker.RESULT_CLICK:
+                stopNestedScroll();
+                // a tap on a child of the card is the child's
+                if (cardHasTouch) {
+                    callback.onCardClicked();
+                }
+                break;
+
+            case DragTracker.RESULT_REJECT:
+                // a nested scrolling parent gets the gesture through the deck, any other parent
+                // is let to take it over
+                nestedScrolling = hasNestedScrollingParent();
+                if (!nestedScrolling) {
+                    requestDisallowIntercept(false);
+                }
+                scrollRemainderX = tracker.getOffsetX();
+                scrollRemainderY = tracker.getOffsetY();
+                dispatchNestedScroll();
+                break;
+
+            case DragTracker.RESULT_SCROLL:
+                scrollRemainderX += tracker.getDeltaX();
+                scrollRemainderY += tracker.getDeltaY();
+                dispatchNestedScroll();
+                break;
+
+            case DragTracker.RESULT_SCROLL_END:
+                dispatchNestedFling(tracker.getVelocityX(), tracker.getVelocityY());
+                stopNestedScroll();
+                break;
+
+            case DragTracker.RESULT_CANCEL:
+                applyMove();
+                callback.onCardReset();
+                break;
         }
+    }
 
-        @Override
-        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-            if (e1 == null || e2 == null) {
-                return false;
-            }
-            float dx = e2.getX() - e1.getX();
-            Log.d("TEMP", "onFling " + velocityX + " " + velocityY + " slop: " + flingSlop + " dx: " + dx + " touch:" +
-                    touchSlop);
-            double angle = Math.atan2(velocityY, velocityX) * 180 / Math.PI % 360;
-            angle = angle > 0 ? angle : angle + 360;
-            Log.d("TEMP", "Angle: " + angle);
-            if (angle < 45 || angle > 315) {
-                callback.onCardSwipedRight(velocityX, velocityY);
-                return true;
-            } else if (angle > 135 && angle < 225) {
-                callback.onCardSwipedLeft(velocityX, velocityY);
-                return true;
-            }
-            return false;
+    private void requestDisallowIntercept(boolean disallow) {
+        ViewParent parent = deck != null ? deck.getParent() : null;
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(disallow);
         }
+    }
 
-        @Override
-        public boolean onDown(MotionEvent e) {
-            initialXPress = e.getX();
-            initialYPress = e.getY();
-            return true;
+    private NestedScrollingChild getNestedScrollingChild() {
+        return deck instanceof NestedScrollingChild ? (NestedScrollingChild) deck : null;
+    }
+
+    private void startNestedScroll() {
+        NestedScrollingChild child = getNestedScrollingChild();
+        if (child != null) {
+            child.startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL | ViewCompat.SCROLL_AXIS_VERTICAL);
+        }
+    }
+
+    private boolean hasNestedScrollingParent() {
+        NestedScrollingChild child = getNestedScrollingChild();
+        return child != null && child.hasNestedScrollingParent();
+    }
+
+    /**
+     * Pass the whole pixels of the moves so far on, scrolling goes the other way than the finger.
+     */
+    private void dispatchNestedScroll() {
+        if (!nestedScrolling) {
+            return;
+        }
+        int dx = (int) -scrollRemainderX;
+        int dy = (int) -scrollRemainderY;
+        if (dx == 0 && dy == 0) {
+            return;
+        }
+        scrollRemainderX += dx;
+        scrollRemainderY += dy;
+        NestedScrollingChild child = getNestedScrollingChild();
+        scrollConsumed[0] = 0;
+        scrollConsumed[1] = 0;
+        child.dispatchNestedPreScroll(dx, dy, scrollConsumed, null);
+        child.dispatchNestedScroll(scrollConsumed[0], scrollConsumed[1],
+                dx - scrollConsumed[0], dy - scrollConsumed[1], null);
+    }
+
+    private void dispatchNestedFling(float velocityX, float velocityY) {
+        if (!nestedScrolling || (velocityX == 0 && velocityY == 0)) {
+            return;
+        }
+        NestedScrollingChild child = getNestedScrollingChild();
+        if (!child.dispatchNestedPreFling(-velocityX, -velocityY)) {
+            child.dispatchNestedFling(-velocityX, -velocityY, false);
+        }
+    }
+
+    private void stopNestedScroll() {
+        nestedScrolling = false;
+        NestedScrollingChild child = getNestedScrollingChild();
+        if (child != null) {
+            child.stopNestedScroll();
+        }
+    }
+
+    /**
+     * The card only moves on the next frame, see {@link #applyMove()}.
+     */
+    private void postMove() {
+        pendingX = anchorX + tracker.getOffsetX();
+        pendingY = anchorY + tracker.getOffsetY();
+        if (!movePending) {
+            movePending = true;
+            ViewCompat.postOnAnimation(card, moveFrame);
         }
     }
 
+    /**
+     * Move the card to where the drag has it, if it moved since the last frame.
+     */
+    private void applyMove() {
+        if (!movePending || card == null) {
+            return;
+        }
+        movePending = false;
+        card.removeCallbacks(moveFrame);
+        card.setX(pendingX);
+        card.setY(pendingY);
+        float rotation = rotationDegrees * 2.f * (pendingX - initialX) / parentWidth;
+        card.setRotation(rotation);
+        callback.onCardMove(rotation);
+    }
+
+    /**
+     * The card was let go, swipe it if the classifier says so or put it back.
+     */
+    private void release(float velocityX, float velocityY) {
+        //the card gets to where the finger was let go, not a frame behind it
+        postMove();
+        applyMove();
+        int direction = classifier.classify(getDragX(), getDragY(), velocityX, velocityY, (int) parentWidth);
+        if (GestureTrace.ENABLED) {
+            boolean fling = velocityX * velocityX + velocityY * velocityY >= (float) flingSlop * flingSlop;
+            GestureTrace.release(fling, getDragX(), getDragY(), velocityX, velocityY, flingSlop, touchSlop,
+                    direction);
+        }
+        if (direction != SwipeDeck.SWIPE_NONE) {
+            callback.onCardSwiped(direction, velocityX, velocityY);
+        } else {
+            callback.onCardReset();
+        }
+    }
+
+    private float getDragX() {
+        return card.getX() - initialX;
+    }
+
+    private float getDragY() {
+        return card.getY() - initialY;
+    }
+
+    public void setSwipeable(boolean swipeable) {
+        this.swipeable = swipeable;
+    }
+
+    /**
+     * @return whether the bound card is currently being dragged
+     */
+    public boolean isDragging() {
+        return tracker.isDragging();
+    }
+
+    /*package*/ interface SwipeCallback {
+        /**
+         * @param direction one of the SWIPE_ constants of {@link SwipeDeck}
+         */
+        void onCardSwiped(int direction, float velocityX, float velocityY);
+
+        void onCardClicked();
+
+        void onCardReset();
+
+        void onCardDragStart();
+
+        void onCardMove(float value);
+    }
+
 }
@@ -0,0 +1,105 @@
+package com.daprlabs.cardstack;
+
+/**
+ * Velocity of a dragged card from its most recent positions. Samples go into a fixed ring of
+ * primitive arrays and the velocity is the slope of a least squares line through the ones from
+ * the last {@link #HORIZON_MILLIS}, so tracking a drag never allocates.
+ * Positions are in pixels, velocities in pixels per second.
+ */
+/*package*/ final class VelocityEstimator {
+
+    /**
+     * Samples older than this, relative to the latest one, don't count towards the velocity.
+     */
+    public static final long HORIZON_MILLIS = 100;
+    //plenty for the horizon even with 240Hz input
+    private static final int CAPACITY = 32;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    //index of the latest sample and how many there are
+    private int head = -1;
+    private int count;
+
+    private float velocityX;
+    private float velocityY;
+
+    public void clear() {
+        head = -1;
+        count = 0;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    public void addSample(long timeMillis, float x, float y) {
+        head = (head + 1) % CAPACITY;
+        times[head] = timeMillis;
+        xs[head] = x;
+        ys[head] = y;
+        if (count < CAPACITY) {
+            ++count;
+        }
+    }
+
+    /**
+     * Fit the velocity to the samples within the horizon, see {@link #getVelocityX()} and
+     * {@link #getVelocityY()}. Fewer than two samples, or samples all at the same time, give 0.
+     */
+    public void computeVelocity() {
+        velocityX = 0;
+        velocityY = 0;
+        if (count < 2) {
+            return;
+        }
+        long latest = times[head];
+        //means over the samples in the horizon, times relative to the latest one
+        int n = 0;
+        float sumT = 0;
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = 0, index = head; i < count; ++i, index = previous(index)) {
+            long age = latest - times[index];
+            if (age > HORIZON_MILLIS) {
+                break;
+            }
+            ++n;
+            sumT -= age;
+            sumX += xs[index];
+            sumY += ys[index];
+        }
+        if (n < 2) {
+            return;
+        }
+        float meanT = sumT / n;
+        float meanX = sumX / n;
+        float meanY = sumY / n;
+        float varianceT = 0;
+        float covarianceX = 0;
+        float covarianceY = 0;
+        for (int i = 0, index = head; i < n; ++i, index = previous(index)) {
+            float t = (times[index] - latest) - meanT;
+            varianceT += t * t;
+            covarianceX += t * (xs[index] - meanX);
+            covarianceY += t * (ys[index] - meanY);
+        }
+        if (varianceT == 0) {
+            return;
+        }
+        //slopes are per millisecond
+        velocityX = covarianceX / varianceT * 1000;
+        velocityY = covarianceY / varianceT * 1000;
+    }
+
+    public float getVelocityX() {
+        return velocityX;
+    }
+
+    public float getVelocityY() {
+        return velocityY;
+    }
+
+    private static int previous(int index) {
+        return index == 0 ? CAPACITY - 1 : index - 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.daprlabs.cardstack;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+/**
+ * Lets the deck treat a {@link SwipeDeck.Adapter} like any other adapter. Every card carries
+ * its view holder, a card handed back as convertView is only bound again, never re-created,
+ * as long as its view type still matches.
+ * The deck keeps a pool per view type, so unlike ListView it doesn't need getViewTypeCount().
+ */
+/*package*/ class ViewHolderAdapterBridge<VH extends SwipeDeck.ViewHolder> extends BaseAdapter {
+
+    private final SwipeDeck.Adapter<VH> adapter;
+
+    public ViewHolderAdapterBridge(SwipeDeck.Adapter<VH> adapter) {
+        this.adapter = adapter;
+    }
+
+    public SwipeDeck.Adapter<VH> getAdapter() {
+        return adapter;
+    }
+
+    @Override
+    public int getCount() {
+        return adapter.getItemCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        //typed adapters hand out their items in onBindViewHolder
+        return null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return adapter.getItemId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return adapter.hasStableIds();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return adapter.getItemViewType(position);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int viewType = adapter.getItemViewType(position);
+        VH holder = convertView != null ? (VH) convertView.getTag(R.id.swipedeck_view_holder) : null;
+        if (holder == null || holder.getItemViewType() != viewType) {
+            holder = adapter.onCreateViewHolder(parent, viewType);
+            holder.itemViewType = viewType;
+            holder.itemView.setTag(R.id.swipedeck_view_holder, holder);
+        }
+        adapter.onBindViewHolder(holder, position);
+        return holder.itemView;
+    }
+}
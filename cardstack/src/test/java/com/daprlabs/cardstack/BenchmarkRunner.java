@@ -0,0 +1,114 @@
+package com.daprlabs.cardstack;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small benchmark runner for the JVM. Runs an operation a number of times, measures the time
+ * and the bytes allocated per operation and writes every result as one line of JSON, so the
+ * output of two releases can be diffed.
+ */
+public class BenchmarkRunner {
+
+    public interface Operation {
+        /**
+         * Called before every run of the operation, not measured.
+         */
+        void prepare();
+
+        void run();
+    }
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final Writer output;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final boolean allocationSupported;
+
+    /**
+     * @param outputPath file the results are appended to, null to only print them. The runners
+     *                   of a suite share it, the suite empties it before the first one
+     */
+    public BenchmarkRunner(int warmupIterations, int iterations, String outputPath) throws IOException {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.output = outputPath != null ? new FileWriter(outputPath, true) : null;
+        this.allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * Benchmark an operation and record the result.
+     *
+     * @param name   name of the benchmark
+     * @param params parameters of this run, written along with the result
+     */
+    public Map<String, Object> run(String name, Map<String, Object> params, Operation operation)
+            throws IOException {
+        for (int i = 0; i < warmupIterations; ++i) {
+            operation.prepare();
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; ++i) {
+            operation.prepare();
+            long bytesBefore = allocatedBytes(threadId);
+            long start = System.nanoTime();
+            operation.run();
+            totalNanos += System.nanoTime() - start;
+            totalBytes += allocatedBytes(threadId) - bytesBefore;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("benchmark", name);
+        result.putAll(params);
+        result.put("iterations", iterations);
+        result.put("nanosPerOp", totalNanos / iterations);
+        result.put("bytesPerOp", allocationSupported ? totalBytes / iterations : -1);
+        write(result);
+        return result;
+    }
+
+    private long allocatedBytes(long threadId) {
+        return allocationSupported
+                ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadId)
+                : 0;
+    }
+
+    private void write(Map<String, Object> result) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Object> entry : result.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":");
+            Object value = entry.getValue();
+            if (value instanceof Number) {
+                json.append(value);
+            } else {
+                json.append('"').append(value).append('"');
+            }
+        }
+        json.append('}');
+
+        System.out.println(json);
+        if (output != null) {
+            output.write(json.append('\n').toString());
+            output.flush();
+        }
+    }
+
+    public void close() throws IOException {
+        if (output != null) {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.daprlabs.cardstack;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Robolectric builds a new AccessibilityManager, which registers new content observers, every
+ * time a view is added or removed. That allocation grows with every call and would drown what
+ * the benchmarks are measuring, so hand out a single instance instead.
+ * <p>
+ * Registered in robolectric.properties: Robolectric 3.1 can't run test classes with shadows of
+ * their own next to the others, every class after the first one with another set fails to start.
+ * So it only caches while the benchmarks are on, and only within a test, other tests get the
+ * AccessibilityManager Robolectric builds for their own application as before.
+ */
+@Implements(AccessibilityManager.class)
+public class CachedAccessibilityManagerShadow extends ShadowAccessibilityManager {
+
+    private static AccessibilityManager instance;
+    private static Context instanceApplication;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (!Boolean.getBoolean("swipedeck.benchmark")) {
+            return ShadowAccessibilityManager.getInstance(context);
+        }
+        //every test has an application of its own, don't hand out one built for an earlier test
+        if (instance == null || instanceApplication != RuntimeEnvironment.application) {
+            instance = ShadowAccessibilityManager.getInstance(context);
+            instanceApplication = RuntimeEnvironment.application;
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,140 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CardOcclusionTest {
+
+    private static final float DELTA = 0.01f;
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 600;
+    private static final int SPACING = 15;
+    private static final int CARDS = 4;
+
+    private CardOcclusion occlusion;
+
+    @Before
+    public void setUp() throws Exception {
+        occlusion = new CardOcclusion();
+    }
+
+    /**
+     * Lay out a deck as SwipeDeck does: every card one spacing above the card below it.
+     */
+    private void stack(int spacing) {
+        occlusion.reset(CARDS);
+        for (int i = 0; i < CARDS; ++i) {
+            occlusion.setCard(i, 40, 0, 40 + WIDTH, HEIGHT, true);
+            occlusion.setTransform(i, 0, (CARDS - 1 - i) * spacing, 0, 1, 1, WIDTH / 2, HEIGHT / 2);
+        }
+    }
+
+    private float drawnArea() {
+        float area = 0;
+        for (int i = 0; i < CARDS; ++i) {
+            area += occlusion.getDrawnArea(i);
+        }
+        return area;
+    }
+
+    @Test
+    public void stackedCards_onlyDrawTheStripsTheCardsAboveLeave() throws Exception {
+        stack(SPACING);
+        occlusion.compute(0);
+
+        //every pixel of the deck once instead of every card in full
+        assertEquals(WIDTH * HEIGHT + (CARDS - 1) * WIDTH * SPACING, drawnArea(), DELTA);
+        assertTrue(occlusion.isFullyExposed(CARDS - 1));
+        for (int i = 0; i < CARDS - 1; ++i) {
+            assertTrue(occlusion.isExposed(i));
+            assertFalse(occlusion.isFullyExposed(i));
+            assertEquals(HEIGHT + (CARDS - 2 - i) * SPACING, occlusion.getClipTop(i), DELTA);
+            assertEquals(CardOcclusion.UNBOUNDED, occlusion.getClipBottom(i), 0);
+            assertEquals(-CardOcclusion.UNBOUNDED, occlusion.getClipLeft(i), 0);
+        }
+    }
+
+    @Test
+    public void cardsWithoutSpacing_areCulled() throws Exception {
+        stack(0);
+        occlusion.compute(0);
+
+        assertEquals(WIDTH * HEIGHT, drawnArea(), DELTA);
+        for (int i = 0; i < CARDS - 1; ++i) {
+            assertFalse(occlusion.isExposed(i));
+        }
+    }
+
+    @Test
+    public void draggedTopCard_exposesTheCardBelowIt() throws Exception {
+        stack(SPACING);
+        occlusion.setTransform(CARDS - 1, 120, 30, 12, 1, 1, WIDTH / 2, HEIGHT / 2);
+        occlusion.compute(0);
+
+        //the card below doesn't get covered across its width anymore, the ones under it still are
+        assertTrue(occlusion.isFullyExposed(CARDS - 2));
+        assertEquals(WIDTH * SPACING, occlusion.getDrawnArea(CARDS - 3), DELTA);
+        assertEquals(WIDTH * SPACING, occlusion.getDrawnArea(0), DELTA);
+    }
+
+    @Test
+    public void rotatedCard_coversWithTheRectangleInsideIt() throws Exception {
+        occlusion.reset(2);
+        occlusion.setCard(0, 0, 0, 300, 300, true);
+        occlusion.setCard(1, 0, 0, 300, 300, true);
+        occlusion.setTransform(1, 0, 0, 90, 1, 1, 150, 150);
+        occlusion.compute(0);
+        assertFalse(occlusion.isExposed(0));
+
+        //tilted, the square on top only covers a smaller square in the middle
+        occlusion.setCard(0, 100, 100, 200, 200, true);
+        occlusion.setTransform(1, 0, 0, 10, 1, 1, 150, 150);
+        occlusion.compute(0);
+        assertFalse(occlusion.isExposed(0));
+
+        occlusion.setCard(0, 0, 100, 300, 200, true);
+        occlusion.compute(0);
+        assertTrue(occlusion.isFullyExposed(0));
+    }
+
+    @Test
+    public void cornerRadius_leavesTheCornersOfTheCardAboveOut() throws Exception {
+        stack(SPACING);
+        occlusion.compute(10);
+
+        assertEquals(HEIGHT - 10, occlusion.getClipTop(CARDS - 2), DELTA);
+        assertEquals(WIDTH * (SPACING + 10), occlusion.getDrawnArea(CARDS - 2), DELTA);
+
+        //the card below shows in the top corners as well, it is drawn in full
+        occlusion.compute(20);
+        assertTrue(occlusion.isFullyExposed(CARDS - 2));
+    }
+
+    @Test
+    public void translucentCard_coversNothing() throws Exception {
+        stack(0);
+        occlusion.setCard(CARDS - 1, 40, 0, 40 + WIDTH, HEIGHT, false);
+        occlusion.compute(0);
+
+        assertTrue(occlusion.isFullyExposed(CARDS - 2));
+        assertFalse(occlusion.isExposed(0));
+    }
+
+    @Test
+    public void scaledCard_coversAroundItsPivot() throws Exception {
+        occlusion.reset(2);
+        occlusion.setCard(0, 0, 0, 100, 100, true);
+        occlusion.setCard(1, 0, 0, 100, 100, true);
+        //half the size, shrunk towards its top left corner
+        occlusion.setTransform(1, 0, 0, 0, 0.5f, 0.5f, 0, 0);
+        occlusion.compute(0);
+
+        assertTrue(occlusion.isFullyExposed(0));
+        occlusion.setCard(0, 0, 0, 50, 100, true);
+        occlusion.compute(0);
+        assertEquals(50, occlusion.getClipTop(0), DELTA);
+        assertEquals(50 * 50, occlusion.getDrawnArea(0), DELTA);
+    }
+}
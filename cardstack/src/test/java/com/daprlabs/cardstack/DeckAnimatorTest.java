@@ -0,0 +1,217 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeckAnimatorTest {
+
+    private static final long MILLIS = 1000000L;
+    private static final float DELTA = 0.001f;
+
+    private DeckAnimator<Card> animator;
+    private final List<String> ends = new ArrayList<>();
+    private final DeckAnimator.Listener<Card> listener = new DeckAnimator.Listener<Card>() {
+        @Override
+        public void onAnimationEnd(Card card, boolean finished) {
+            ends.add(card.name + (finished ? " finished" : " canceled"));
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        animator = new DeckAnimator<>(new DeckAnimator.Properties<Card>() {
+            @Override
+            public float get(Card card, int property) {
+                return card.values[property];
+            }
+
+            @Override
+            public void set(Card card, int property, float value) {
+                card.values[property] = value;
+            }
+        });
+    }
+
+    @Test
+    public void animationStartsWithTheFirstFrame() throws Exception {
+        Card card = new Card("a");
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, listener)
+                .to(DeckAnimator.TRANSLATION_X, 100)
+                .to(DeckAnimator.ALPHA, 0);
+
+        assertTrue(animator.doFrame(1000 * MILLIS));
+        assertEquals(0, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+
+        assertTrue(animator.doFrame(1050 * MILLIS));
+        assertEquals(50, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+        assertEquals(0.5f, card.values[DeckAnimator.ALPHA], DELTA);
+
+        assertFalse(animator.doFrame(1100 * MILLIS));
+        assertEquals(100, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+        assertEquals(0, card.values[DeckAnimator.ALPHA], DELTA);
+        assertEquals("[a finished]", ends.toString());
+        assertFalse(animator.hasRunningAnimations());
+    }
+
+    @Test
+    public void startDelay_holdsThePropertyWhereItIs() throws Exception {
+        Card card = new Card("a");
+        animator.animate(card, 100, 50, DeckAnimator.LINEAR, listener)
+                .by(DeckAnimator.TRANSLATION_Y, 10);
+
+        animator.doFrame(0);
+        animator.doFrame(40 * MILLIS);
+        assertEquals(0, card.values[DeckAnimator.TRANSLATION_Y], DELTA);
+        assertTrue(ends.isEmpty());
+
+        animator.doFrame(100 * MILLIS);
+        assertEquals(5, card.values[DeckAnimator.TRANSLATION_Y], DELTA);
+        animator.doFrame(150 * MILLIS);
+        assertEquals("[a finished]", ends.toString());
+    }
+
+    @Test
+    public void newerAnimation_takesOverThePropertyAndCancelsTheListener() throws Exception {
+        Card card = new Card("a");
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, listener)
+                .to(DeckAnimator.TRANSLATION_X, 100)
+                .to(DeckAnimator.ROTATION, 30);
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+
+        //no listener of its own, the first animation keeps its rotation but lost its card's x
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, null)
+                .to(DeckAnimator.TRANSLATION_X, 0);
+        animator.doFrame(60 * MILLIS);
+        assertEquals(50, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+        animator.doFrame(100 * MILLIS);
+        assertEquals(30, card.values[DeckAnimator.ROTATION], DELTA);
+        assertEquals("[a canceled]", ends.toString());
+
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, listener).to(DeckAnimator.ALPHA, 0);
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, listener).to(DeckAnimator.ALPHA, 1);
+        assertEquals("[a canceled, a canceled]", ends.toString());
+    }
+
+    @Test
+    public void cancel_leavesThePropertiesWhereTheyAre() throws Exception {
+        Card a = new Card("a");
+        Card b = new Card("b");
+        animator.animate(a, 100, 0, DeckAnimator.LINEAR, listener).to(DeckAnimator.SCALE_X, 2);
+        animator.animate(b, 100, 0, DeckAnimator.LINEAR, listener).to(DeckAnimator.SCALE_Y, 2);
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+
+        animator.cancel(a);
+        assertEquals("[a canceled]", ends.toString());
+        assertFalse(animator.isAnimating(a));
+        assertTrue(animator.isAnimating(b));
+
+        animator.doFrame(100 * MILLIS);
+        assertEquals(1.5f, a.values[DeckAnimator.SCALE_X], DELTA);
+        assertEquals(2, b.values[DeckAnimator.SCALE_Y], DELTA);
+        assertEquals("[a canceled, b finished]", ends.toString());
+    }
+
+    @Test
+    public void listener_canStartTheNextAnimation() throws Exception {
+        final Card card = new Card("a");
+        animator.animate(card, 10, 0, DeckAnimator.LINEAR, new DeckAnimator.Listener<Card>() {
+            @Override
+            public void onAnimationEnd(Card ended, boolean finished) {
+                animator.animate(ended, 10, 0, DeckAnimator.LINEAR, listener).to(DeckAnimator.TRANSLATION_X, 0);
+            }
+        }).to(DeckAnimator.TRANSLATION_X, 10);
+
+        animator.doFrame(0);
+        assertTrue(animator.doFrame(10 * MILLIS));
+        assertEquals(10, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+
+        animator.doFrame(20 * MILLIS);
+        assertFalse(animator.doFrame(30 * MILLIS));
+        assertEquals(0, card.values[DeckAnimator.TRANSLATION_X], DELTA);
+        assertEquals("[a finished]", ends.toString());
+    }
+
+    @Test
+    public void manyCards_growTheSlots() throws Exception {
+        Card[] cards = new Card[20];
+        for (int i = 0; i < cards.length; ++i) {
+            cards[i] = new Card(String.valueOf(i));
+            animator.animate(cards[i], 10 * (i + 1), 0, DeckAnimator.LINEAR, null)
+                    .to(DeckAnimator.TRANSLATION_Y, i);
+        }
+        animator.doFrame(0);
+        animator.doFrame(100 * MILLIS);
+
+        for (int i = 0; i < cards.length; ++i) {
+            assertEquals(i < 10 ? i : i * 100f / (10 * (i + 1)), cards[i].values[DeckAnimator.TRANSLATION_Y], DELTA);
+            assertEquals(i >= 10, animator.isAnimating(cards[i]));
+        }
+    }
+
+    @Test
+    public void spring_settlesOnItsTargetAndKeepsTheVelocityItTakesOver() throws Exception {
+        Card card = new Card("a");
+        card.values[DeckAnimator.TRANSLATION_X] = 200;
+        animator.animate(card, 0, 0, DeckAnimator.LINEAR, listener)
+                .springTo(DeckAnimator.TRANSLATION_X, 0, DeckPhysics.RESET_STIFFNESS);
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+        float velocity = animator.getVelocity(card, DeckAnimator.TRANSLATION_X);
+        assertTrue(velocity < 0);
+
+        //a new spring picks up where the first one was
+        animator.animate(card, 0, 0, DeckAnimator.LINEAR, null)
+                .springTo(DeckAnimator.TRANSLATION_X, 0, DeckPhysics.RESET_STIFFNESS);
+        assertEquals(velocity, animator.getVelocity(card, DeckAnimator.TRANSLATION_X), DELTA);
+
+        long frame = 50 * MILLIS;
+        while (animator.doFrame(frame)) {
+            frame += 16 * MILLIS;
+            assertTrue(frame < 2000 * MILLIS);
+        }
+        assertEquals(0, card.values[DeckAnimator.TRANSLATION_X], 0);
+        assertEquals(0, animator.getVelocity(card, DeckAnimator.TRANSLATION_X), 0);
+    }
+
+    @Test
+    public void fling_stopsWhereFrictionGotItAtTheEnd() throws Exception {
+        Card card = new Card("a");
+        animator.animate(card, 100, 0, DeckAnimator.LINEAR, listener)
+                .fling(DeckAnimator.TRANSLATION_Y, 1000, DeckPhysics.FLING_FRICTION);
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+        assertEquals(DeckPhysics.frictionDistance(1000, DeckPhysics.FLING_FRICTION, 0.05f),
+                card.values[DeckAnimator.TRANSLATION_Y], DELTA);
+
+        assertFalse(animator.doFrame(500 * MILLIS));
+        assertEquals(DeckPhysics.frictionDistance(1000, DeckPhysics.FLING_FRICTION, 0.1f),
+                card.values[DeckAnimator.TRANSLATION_Y], DELTA);
+        assertEquals("[a finished]", ends.toString());
+    }
+
+    @Test
+    public void interpolators_startAtZeroAndEndAtOne() throws Exception {
+        int[] interpolators = {DeckAnimator.LINEAR, DeckAnimator.ACCELERATE_DECELERATE, DeckAnimator.OVERSHOOT};
+        for (int interpolator : interpolators) {
+            assertEquals(0, DeckAnimator.interpolate(interpolator, 0), DELTA);
+            assertEquals(1, DeckAnimator.interpolate(interpolator, 1), DELTA);
+        }
+        assertTrue(DeckAnimator.interpolate(DeckAnimator.OVERSHOOT, 0.7f) > 1);
+    }
+
+    private static class Card {
+        final String name;
+        final float[] values = {0, 0, 0, 1, 1, 1};
+
+        Card(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeckCursorTest {
+
+    private DeckCursor cursor;
+
+    @Before
+    public void setUp() throws Exception {
+        cursor = new DeckCursor();
+        cursor.setCount(10);
+        cursor.reset(0);
+    }
+
+    private void pullIn(int cards) {
+        for (int i = 0; i < cards; ++i) {
+            cursor.advanceNext();
+        }
+    }
+
+    @Test
+    public void firstCardIsPositionZero() throws Exception {
+        assertEquals(0, cursor.advanceNext());
+        assertEquals(1, cursor.advanceNext());
+        assertEquals(0, cursor.getTopPosition());
+        assertEquals(2, cursor.getCardCount());
+    }
+
+    @Test
+    public void advanceTop_followsSwipes() throws Exception {
+        pullIn(3);
+        cursor.advanceTop();
+        assertEquals(1, cursor.getTopPosition());
+        assertEquals(2, cursor.positionAt(1));
+        assertEquals(2, cursor.getCardCount());
+
+        cursor.advanceTop();
+        cursor.advanceTop();
+        cursor.advanceTop();
+        assertEquals(3, cursor.getTopPosition());
+        assertEquals(0, cursor.getCardCount());
+    }
+
+    @Test
+    public void unboundedCount_neverRunsOut() throws Exception {
+        cursor.setCount(DeckCursor.COUNT_UNBOUNDED);
+        assertTrue(cursor.isInBounds(Integer.MAX_VALUE - 1));
+        assertFalse(cursor.isInBounds(-1));
+        assertEquals(0, cursor.onItemRangeInserted(0, 5));
+        assertEquals(DeckCursor.COUNT_UNBOUNDED, cursor.getCount());
+    }
+
+    @Test
+    public void insertBelowTheDeck_keepsEveryCard() throws Exception {
+        pullIn(3);
+        assertEquals(0, cursor.onItemRangeInserted(3, 5));
+        assertEquals(15, cursor.getCount());
+        assertEquals(0, cursor.getTopPosition());
+        assertEquals(3, cursor.getNextPosition());
+    }
+
+    @Test
+    public void insertAboveTheTopCard_shiftsTheDeck() throws Exception {
+        cursor.reset(4);
+        pullIn(3);
+        assertEquals(0, cursor.onItemRangeInserted(3, 2));
+        assertEquals(6, cursor.getTopPosition());
+        assertEquals(9, cursor.getNextPosition());
+    }
+
+    @Test
+    public void insertAtTheTopCard_dropsTheDeckToShowTheNewItems() throws Exception {
+        cursor.reset(4);
+        pullIn(3);
+        assertEquals(3, cursor.onItemRangeInserted(4, 2));
+        assertEquals(4, cursor.getTopPosition());
+        assertEquals(4, cursor.getNextPosition());
+    }
+
+    @Test
+    public void insertIntoTheDeck_dropsTheCardsBelow() throws Exception {
+        pullIn(3);
+        assertEquals(2, cursor.onItemRangeInserted(1, 4));
+        assertEquals(0, cursor.getTopPosition());
+        assertEquals(1, cursor.getNextPosition());
+    }
+
+    @Test
+    public void insertIntoAnEmptyDeck_isPulledIn() throws Exception {
+        cursor.reset(10);
+        assertEquals(0, cursor.onItemRangeInserted(10, 3));
+        assertEquals(10, cursor.getTopPosition());
+        assertTrue(cursor.isInBounds(10));
+    }
+
+    @Test
+    public void removeAboveTheTopCard_shiftsTheDeck() throws Exception {
+        cursor.reset(5);
+        pullIn(3);
+        assertEquals(0, cursor.onItemRangeRemoved(1, 2));
+        assertEquals(3, cursor.getTopPosition());
+        assertEquals(6, cursor.getNextPosition());
+        assertEquals(8, cursor.getCount());
+    }
+
+    @Test
+    public void removeInsideTheDeck_takesOffOnlyThoseCards() throws Exception {
+        pullIn(3);
+        assertEquals(1, cursor.onItemRangeRemoved(2, 4));
+        assertEquals(0, cursor.getTopPosition());
+        assertEquals(2, cursor.getNextPosition());
+    }
+
+    @Test
+    public void removeTheTopCard_movesTheCardsBelowUp() throws Exception {
+        cursor.reset(5);
+        pullIn(3);
+        assertEquals(1, cursor.onItemRangeRemoved(3, 3));
+        assertEquals(3, cursor.getTopPosition());
+        assertEquals(2, cursor.getCardCount());
+    }
+
+    @Test
+    public void removeBelowTheDeck_keepsEveryCard() throws Exception {
+        pullIn(3);
+        assertEquals(0, cursor.onItemRangeRemoved(3, 4));
+        assertEquals(0, cursor.getTopPosition());
+        assertEquals(3, cursor.getNextPosition());
+        assertEquals(6, cursor.getCount());
+    }
+
+    @Test
+    public void clampToCount_dropsCardsPastTheEnd() throws Exception {
+        cursor.reset(5);
+        pullIn(3);
+        cursor.setCount(6);
+        assertEquals(2, cursor.clampToCount());
+        assertEquals(5, cursor.getTopPosition());
+        assertEquals(6, cursor.getNextPosition());
+
+        cursor.setCount(2);
+        assertEquals(1, cursor.clampToCount());
+        assertEquals(2, cursor.getTopPosition());
+        assertEquals(0, cursor.getCardCount());
+    }
+}
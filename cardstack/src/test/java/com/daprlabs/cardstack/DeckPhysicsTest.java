@@ -0,0 +1,108 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeckPhysicsTest {
+
+    //the threshold on a screen of density 2
+    private static final float MIN_CROSS_SCALED = 2 * DeckPhysics.MIN_CROSS_SCALED_VELOCITY_DP;
+    private static final float DELTA = 0.01f;
+
+    @Test
+    public void spring_startsWhereItWasAndSettlesWithoutOvershooting() throws Exception {
+        float frequency = DeckPhysics.springFrequency(DeckPhysics.RESET_STIFFNESS);
+        assertEquals(300, DeckPhysics.springDisplacement(300, 0, frequency, 0), DELTA);
+        assertEquals(-1000, DeckPhysics.springVelocity(300, -1000, frequency, 0), DELTA);
+
+        float previous = 300;
+        for (int frame = 1; frame < 60; ++frame) {
+            float displacement = DeckPhysics.springDisplacement(300, 0, frequency, frame / 60f);
+            assertTrue(displacement >= 0);
+            assertTrue(displacement <= previous);
+            previous = displacement;
+        }
+        assertTrue(previous < 0.5f);
+    }
+
+    @Test
+    public void spring_isTheSameWhateverTheFrameRate() throws Exception {
+        float frequency = DeckPhysics.springFrequency(DeckPhysics.RESET_STIFFNESS);
+        //restart from the state at a 60Hz frame and continue
+        float seconds = 1 / 60f;
+        float displacement = DeckPhysics.springDisplacement(200, 500, frequency, seconds);
+        float velocity = DeckPhysics.springVelocity(200, 500, frequency, seconds);
+
+        assertEquals(DeckPhysics.springDisplacement(200, 500, frequency, 0.1f),
+                DeckPhysics.springDisplacement(displacement, velocity, frequency, 0.1f - seconds), DELTA);
+    }
+
+    @Test
+    public void friction_slowsDown() throws Exception {
+        float friction = DeckPhysics.FLING_FRICTION;
+        assertEquals(0, DeckPhysics.frictionDistance(2000, friction, 0), DELTA);
+        assertEquals(2000, DeckPhysics.frictionVelocity(2000, friction, 0), DELTA);
+        assertTrue(DeckPhysics.frictionVelocity(2000, friction, 0.1f) < 2000);
+        //never further than velocity / friction
+        assertTrue(DeckPhysics.frictionDistance(2000, friction, 100) <= 2000 / friction + DELTA);
+    }
+
+    @Test
+    public void fastFling_keepsTheFingersVelocity() throws Exception {
+        float velocity = DeckPhysics.flingVelocity(-400, -8000, DeckPhysics.FLING_FRICTION,
+                DeckPhysics.MAX_FLING_SECONDS);
+        assertEquals(-8000, velocity, DELTA);
+
+        long nanos = DeckPhysics.flingDurationNanos(-400, velocity, DeckPhysics.FLING_FRICTION);
+        assertEquals(-400, DeckPhysics.frictionDistance(velocity, DeckPhysics.FLING_FRICTION, nanos / 1e9f), 0.1f);
+    }
+
+    @Test
+    public void slowFling_isSpedUpToMakeItInTime() throws Exception {
+        float velocity = DeckPhysics.flingVelocity(400, 100, DeckPhysics.FLING_FRICTION,
+                DeckPhysics.MAX_FLING_SECONDS);
+        assertTrue(velocity > 100);
+
+        long nanos = DeckPhysics.flingDurationNanos(400, velocity, DeckPhysics.FLING_FRICTION);
+        assertEquals(DeckPhysics.MAX_FLING_SECONDS, nanos / 1e9f, 0.001f);
+    }
+
+    @Test
+    public void crossVelocity_followsTheFlingAlongTheSwipe() throws Exception {
+        //sped up twice along the swipe, twice across it
+        assertEquals(-1200, DeckPhysics.crossVelocity(1000, -600, 2000, MIN_CROSS_SCALED), DELTA);
+        //but not without bound
+        assertEquals(-600 * DeckPhysics.MAX_CROSS_SCALE,
+                DeckPhysics.crossVelocity(1000, -600, 20000, MIN_CROSS_SCALED), DELTA);
+    }
+
+    @Test
+    public void crossVelocity_threshold_isTheSamePhysicalSpeedOnEveryDensity() throws Exception {
+        //700 pixels per second is fast enough on a density 1 screen, not on a density 2 one
+        assertEquals(400, DeckPhysics.crossVelocity(700, 200, 1400,
+                DeckPhysics.MIN_CROSS_SCALED_VELOCITY_DP), DELTA);
+        assertEquals(200, DeckPhysics.crossVelocity(700, 200, 1400, MIN_CROSS_SCALED), DELTA);
+    }
+
+    @Test
+    public void crossVelocity_ofAReleaseCommittedByDistance_isNotBlownUp() throws Exception {
+        float fling = DeckPhysics.flingVelocity(400, 3, DeckPhysics.FLING_FRICTION,
+                DeckPhysics.MAX_FLING_SECONDS);
+        assertTrue(fling > 1000);
+
+        //barely moving along the swipe, or the other way, the finger's velocity across is kept
+        assertEquals(200, DeckPhysics.crossVelocity(3, 200, fling, MIN_CROSS_SCALED), DELTA);
+        assertEquals(200, DeckPhysics.crossVelocity(0, 200, fling, MIN_CROSS_SCALED), DELTA);
+        assertEquals(200, DeckPhysics.crossVelocity(-900, 200, fling, MIN_CROSS_SCALED), DELTA);
+    }
+
+    @Test
+    public void flingDuration_growsWithTheDistanceLeft() throws Exception {
+        long near = DeckPhysics.flingDurationNanos(100, 3000, DeckPhysics.FLING_FRICTION);
+        long far = DeckPhysics.flingDurationNanos(400, 3000, DeckPhysics.FLING_FRICTION);
+        assertTrue(near < far);
+        assertEquals(0, DeckPhysics.flingDurationNanos(0, 3000, DeckPhysics.FLING_FRICTION));
+        assertEquals(Long.MAX_VALUE, DeckPhysics.flingDurationNanos(1000, 10, DeckPhysics.FLING_FRICTION));
+    }
+}
@@ -0,0 +1,139 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class DecodeAheadCacheTest {
+
+    private static final int CARD_BYTES = 100;
+
+    private final List<Integer> decoded = new ArrayList<>();
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private DecodeAheadCache<String> cache;
+
+    //decodes every position to a 100 byte "image"
+    private final DecodeAheadCache.Decoder<String> decoder = new DecodeAheadCache.Decoder<String>() {
+        @Override
+        public String decode(int position) {
+            decoded.add(position);
+            return "image " + position;
+        }
+
+        @Override
+        public int sizeOf(String value) {
+            return CARD_BYTES;
+        }
+    };
+
+    private final Executor queue = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new DecodeAheadCache<>(decoder, 3 * CARD_BYTES, queue);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void preload_decodesTheUpcomingPositionsOnce() throws Exception {
+        cache.preload(0, 3);
+        assertNull(cache.get(0));
+        runTasks();
+        cache.preload(0, 3);
+        runTasks();
+
+        assertEquals("[0, 1, 2]", decoded.toString());
+        assertEquals("image 1", cache.get(1));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3 * CARD_BYTES, cache.size());
+    }
+
+    @Test
+    public void swipedCards_makeRoomFirst() throws Exception {
+        cache.preload(0, 3);
+        runTasks();
+        cache.preload(1, 3);
+        runTasks();
+
+        assertNull(cache.get(0));
+        assertEquals("image 3", cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3 * CARD_BYTES, cache.size());
+    }
+
+    @Test
+    public void furthestFromTheTop_isEvicted() throws Exception {
+        //a budget of two cards, filled with the ones further down first
+        cache = new DecodeAheadCache<>(decoder, 2 * CARD_BYTES, queue);
+        cache.preload(2, 2);
+        runTasks();
+        cache.preload(0, 4);
+        runTasks();
+
+        assertEquals("image 0", cache.get(0));
+        assertEquals("image 1", cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.get(3));
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void contentThatDoesNotFit_isNotKept() throws Exception {
+        cache = new DecodeAheadCache<>(decoder, 2 * CARD_BYTES, queue);
+        cache.preload(0, 3);
+        runTasks();
+
+        assertEquals(2 * CARD_BYTES, cache.size());
+        assertNull(cache.get(2));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void invalidate_dropsTheContentOfTheOldData() throws Exception {
+        cache.preload(0, 2);
+        runTasks();
+        //the data changes while position 2 is decoding
+        cache.preload(0, 3);
+        cache.invalidate();
+
+        assertNull(cache.get(0));
+        assertEquals(0, cache.size());
+        runTasks();
+        assertNull(cache.get(2));
+
+        cache.preload(0, 3);
+        runTasks();
+        assertEquals("[0, 1, 0, 1, 2]", decoded.toString());
+        assertEquals("image 2", cache.get(2));
+        assertEquals(3 * CARD_BYTES, cache.size());
+    }
+
+    @Test
+    public void positionsSwipedBeforeTheyDecode_areSkipped() throws Exception {
+        cache.preload(0, 3);
+        cache.preload(2, 3);
+        runTasks();
+
+        assertEquals("[2, 3, 4]", decoded.toString());
+        assertEquals(3, cache.getDecodeCount());
+    }
+}
@@ -0,0 +1,142 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.daprlabs.cardstack.DragTracker.*;
+import static org.junit.Assert.*;
+
+public class DragTrackerTest {
+
+    private static final int TOUCH_SLOP = 8;
+    private static final float DELTA = 0.001f;
+
+    private DragTracker tracker;
+
+    @Before
+    public void setUp() throws Exception {
+        tracker = new DragTracker(TOUCH_SLOP);
+    }
+
+    @Test
+    public void tap_isAClick() throws Exception {
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .move(0, 105, 103, 10)
+                .up(0, 105, 103, 20)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_NONE, RESULT_CLICK}, results);
+        assertEquals(-1, tracker.getActivePointerId());
+    }
+
+    @Test
+    public void drag_startsPastTheSlopAndKeepsTheWholeOffset() throws Exception {
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .move(0, 106, 100, 10)
+                .move(0, 110, 100, 20)
+                .move(0, 150, 90, 30)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_NONE, RESULT_DRAG_START, RESULT_DRAG}, results);
+        assertTrue(tracker.isDragging());
+        assertEquals(50, tracker.getOffsetX(), DELTA);
+        assertEquals(-10, tracker.getOffsetY(), DELTA);
+    }
+
+    @Test
+    public void release_givesTheVelocityOfTheDrag() throws Exception {
+        MotionTrace trace = new MotionTrace().down(0, 0, 0, 0)
+                .moveTo(0, 0, 0, 160, 40, 0, 80, 8);
+        int[] results = trace.up(0, 160, 40, 80).replay(tracker);
+
+        assertEquals(RESULT_RELEASE, results[trace.size() - 1]);
+        assertEquals(2000, tracker.getVelocityX(), 1);
+        assertEquals(500, tracker.getVelocityY(), 1);
+        assertFalse(tracker.isDragging());
+    }
+
+    @Test
+    public void secondPointer_takesOverWithoutAJump() throws Exception {
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .move(0, 130, 100, 10)
+                .pointerDown(1, 300, 300, 15)
+                //the first finger doesn't count anymore
+                .move(0, 500, 500, 20)
+                .move(1, 310, 305, 20)
+                .replay(tracker);
+        assertEquals(RESULT_NONE, results[3]);
+        assertEquals(RESULT_DRAG, results[4]);
+        assertEquals(1, tracker.getActivePointerId());
+        assertEquals(2, tracker.getPointerCount());
+        assertEquals(40, tracker.getOffsetX(), DELTA);
+        assertEquals(5, tracker.getOffsetY(), DELTA);
+    }
+
+    @Test
+    public void activePointerUp_handsTheDragToAnotherOne() throws Exception {
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .pointerDown(1, 200, 200, 5)
+                .move(1, 240, 200, 10)
+                .pointerUp(1, 0, 100, 100, 15)
+                .move(0, 90, 100, 20)
+                .up(0, 90, 100, 25)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_NONE, RESULT_DRAG_START, RESULT_NONE, RESULT_DRAG,
+                RESULT_RELEASE}, results);
+        assertEquals(30, tracker.getOffsetX(), DELTA);
+    }
+
+    @Test
+    public void otherPointerUp_keepsTheActiveOne() throws Exception {
+        new MotionTrace()
+                .down(0, 100, 100, 0)
+                .pointerDown(1, 200, 200, 5)
+                .pointerUp(0, 1, 200, 200, 10)
+                .move(1, 250, 200, 15)
+                .replay(tracker);
+        assertEquals(1, tracker.getActivePointerId());
+        assertEquals(1, tracker.getPointerCount());
+        assertEquals(50, tracker.getOffsetX(), DELTA);
+    }
+
+    @Test
+    public void dragAlongAnotherAxis_isRejectedAndScrolls() throws Exception {
+        tracker.setAxes(true, false);
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .move(0, 103, 120, 10)
+                .move(0, 150, 150, 20)
+                .up(0, 150, 160, 30)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_REJECT, RESULT_SCROLL, RESULT_SCROLL_END}, results);
+        assertEquals(10, tracker.getDeltaY(), DELTA);
+        assertTrue(tracker.getVelocityY() > 0);
+        assertFalse(tracker.isDragging());
+
+        //a drag along the allowed axis is still a drag
+        results = new MotionTrace()
+                .down(0, 100, 100, 40)
+                .move(0, 120, 103, 50)
+                .cancel(60)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_DRAG_START, RESULT_CANCEL}, results);
+    }
+
+    @Test
+    public void cancel_onlyReportsADragThatStarted() throws Exception {
+        int[] results = new MotionTrace()
+                .down(0, 100, 100, 0)
+                .cancel(5)
+                .down(0, 100, 100, 10)
+                .move(0, 200, 100, 20)
+                .cancel(25)
+                //nothing until the next down
+                .move(0, 300, 100, 30)
+                .up(0, 300, 100, 35)
+                .replay(tracker);
+        assertArrayEquals(new int[]{RESULT_NONE, RESULT_NONE, RESULT_NONE, RESULT_DRAG_START, RESULT_CANCEL,
+                RESULT_NONE, RESULT_NONE}, results);
+    }
+}
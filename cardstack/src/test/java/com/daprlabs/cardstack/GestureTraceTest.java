@@ -0,0 +1,21 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GestureTraceTest {
+
+    @Test
+    public void format_namesEveryField() throws Exception {
+        assertEquals("release type=fling dx=-120.0 dy=8.5 vx=-2400.0 vy=30.0 flingSlop=50 touchSlop=8 direction=left",
+                GestureTrace.format(true, -120, 8.5f, -2400, 30, 50, 8, SwipeDeck.SWIPE_LEFT));
+        assertEquals("release type=drag dx=10.0 dy=0.0 vx=0.0 vy=0.0 flingSlop=50 touchSlop=8 direction=none",
+                GestureTrace.format(false, 10, 0, 0, 0, 50, 8, SwipeDeck.SWIPE_NONE));
+    }
+
+    @Test
+    public void isOffUnlessTheBuildAsksForIt() throws Exception {
+        assertEquals(BuildConfig.TRACE_GESTURES, GestureTrace.ENABLED);
+    }
+}
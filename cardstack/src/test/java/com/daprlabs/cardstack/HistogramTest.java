@@ -0,0 +1,56 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void record_putsValuesIntoInclusiveBuckets() throws Exception {
+        Histogram histogram = new Histogram(10, 100);
+
+        histogram.record(0);
+        histogram.record(10);
+        histogram.record(11);
+        histogram.record(1000);
+
+        assertEquals(3, histogram.getBucketCount());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(1));
+        assertEquals(1, histogram.getBucketCount(2));
+        assertEquals(Long.MAX_VALUE, histogram.getUpperBound(2));
+    }
+
+    @Test
+    public void record_keepsAggregates() throws Exception {
+        Histogram histogram = new Histogram(10, 100);
+
+        histogram.record(5);
+        histogram.record(15);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(20, histogram.getSum());
+        assertEquals(10, histogram.getMean());
+        assertEquals(15, histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getBucketCount(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsUnorderedBounds() throws Exception {
+        new Histogram(100, 10);
+    }
+
+    @Test
+    public void droppedFrames_toleratesJitter() throws Exception {
+        long frame = SwipeDeckMetrics.DEFAULT_FRAME_INTERVAL_NANOS;
+
+        assertEquals(0, SwipeDeckMetrics.droppedFrames(frame, frame));
+        assertEquals(0, SwipeDeckMetrics.droppedFrames(frame + frame / 3, frame));
+        assertEquals(1, SwipeDeckMetrics.droppedFrames(2 * frame, frame));
+        assertEquals(3, SwipeDeckMetrics.droppedFrames(4 * frame, frame));
+    }
+}
@@ -0,0 +1,135 @@
+package com.daprlabs.cardstack;
+
+import java.util.Arrays;
+
+/**
+ * A recorded gesture that can be replayed into a {@link DragTracker}, so the tracker can be
+ * checked and timed without any MotionEvent. Steps are kept in primitive arrays, replaying a
+ * trace doesn't allocate.
+ */
+public class MotionTrace {
+
+    private static final int DOWN = 0;
+    private static final int POINTER_DOWN = 1;
+    private static final int MOVE = 2;
+    private static final int POINTER_UP = 3;
+    private static final int UP = 4;
+    private static final int CANCEL = 5;
+
+    private int size;
+    private int[] actions = new int[16];
+    private int[] pointerIds = new int[16];
+    //for a pointer going up, the pointer that takes over
+    private int[] nextPointerIds = new int[16];
+    private float[] xs = new float[16];
+    private float[] ys = new float[16];
+    private long[] times = new long[16];
+
+    public MotionTrace down(int pointerId, float x, float y, long timeMillis) {
+        return add(DOWN, pointerId, -1, x, y, timeMillis);
+    }
+
+    public MotionTrace pointerDown(int pointerId, float x, float y, long timeMillis) {
+        return add(POINTER_DOWN, pointerId, -1, x, y, timeMillis);
+    }
+
+    public MotionTrace move(int pointerId, float x, float y, long timeMillis) {
+        return add(MOVE, pointerId, -1, x, y, timeMillis);
+    }
+
+    /**
+     * @param x where the pointer taking over is
+     */
+    public MotionTrace pointerUp(int pointerId, int nextPointerId, float x, float y, long timeMillis) {
+        return add(POINTER_UP, pointerId, nextPointerId, x, y, timeMillis);
+    }
+
+    public MotionTrace up(int pointerId, float x, float y, long timeMillis) {
+        return add(UP, pointerId, -1, x, y, timeMillis);
+    }
+
+    public MotionTrace cancel(long timeMillis) {
+        return add(CANCEL, -1, -1, 0, 0, timeMillis);
+    }
+
+    /**
+     * A straight move of one pointer in steps of the given interval, the end included.
+     */
+    public MotionTrace moveTo(int pointerId, float fromX, float fromY, float toX, float toY,
+                              long fromMillis, long toMillis, long intervalMillis) {
+        int steps = (int) ((toMillis - fromMillis) / intervalMillis);
+        for (int i = 1; i <= steps; ++i) {
+            float fraction = (float) i / steps;
+            move(pointerId, fromX + (toX - fromX) * fraction, fromY + (toY - fromY) * fraction,
+                    fromMillis + i * intervalMillis);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Replay every step into the tracker.
+     *
+     * @param results the tracker's result for each step, at least {@link #size()} long. May be null
+     */
+    public void replay(DragTracker tracker, int[] results) {
+        for (int i = 0; i < size; ++i) {
+            int result;
+            switch (actions[i]) {
+                case DOWN:
+                    result = tracker.onDown(pointerIds[i], xs[i], ys[i], times[i]);
+                    break;
+                case POINTER_DOWN:
+                    result = tracker.onPointerDown(pointerIds[i], xs[i], ys[i]);
+                    break;
+                case MOVE:
+                    result = tracker.onMove(pointerIds[i], xs[i], ys[i], times[i]);
+                    break;
+                case POINTER_UP:
+                    result = tracker.onPointerUp(pointerIds[i], nextPointerIds[i], xs[i], ys[i]);
+                    break;
+                case UP:
+                    result = tracker.onUp(pointerIds[i], xs[i], ys[i], times[i]);
+                    break;
+                default:
+                    result = tracker.onCancel();
+                    break;
+            }
+            if (results != null) {
+                results[i] = result;
+            }
+        }
+    }
+
+    /**
+     * @return the results of replaying the trace into the tracker
+     */
+    public int[] replay(DragTracker tracker) {
+        int[] results = new int[size];
+        replay(tracker, results);
+        return results;
+    }
+
+    private MotionTrace add(int action, int pointerId, int nextPointerId, float x, float y, long timeMillis) {
+        if (size == actions.length) {
+            int capacity = size * 2;
+            actions = Arrays.copyOf(actions, capacity);
+            pointerIds = Arrays.copyOf(pointerIds, capacity);
+            nextPointerIds = Arrays.copyOf(nextPointerIds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        actions[size] = action;
+        pointerIds[size] = pointerId;
+        nextPointerIds[size] = nextPointerId;
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = timeMillis;
+        ++size;
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrefetchWindowTest {
+
+    @Test
+    public void nextMissing_walksTheWindowInOrder() throws Exception {
+        PrefetchWindow<String> window = new PrefetchWindow<>(3);
+
+        assertEquals(5, window.nextMissing(5, 100));
+        window.put(5, "5");
+        assertEquals(6, window.nextMissing(5, 100));
+        window.put(6, "6");
+        window.put(7, "7");
+        assertEquals(-1, window.nextMissing(5, 100));
+    }
+
+    @Test
+    public void nextMissing_stopsAtTheEndOfTheAdapter() throws Exception {
+        PrefetchWindow<String> window = new PrefetchWindow<>(3);
+        window.put(5, "5");
+
+        assertEquals(-1, window.nextMissing(5, 1));
+        assertEquals(-1, window.nextMissing(5, 0));
+    }
+
+    @Test
+    public void take_promotesThePrefetchedCard() throws Exception {
+        PrefetchWindow<String> window = new PrefetchWindow<>(3);
+        window.put(5, "5");
+        window.put(6, "6");
+
+        assertEquals("5", window.take(5));
+        assertNull(window.take(5));
+        assertEquals(1, window.size());
+        assertEquals(5, window.nextMissing(5, 100));
+    }
+
+    @Test
+    public void takeStale_returnsCardsOutsideTheWindow() throws Exception {
+        PrefetchWindow<String> window = new PrefetchWindow<>(2);
+        window.put(5, "5");
+        window.put(6, "6");
+
+        assertNull(window.takeStale(5));
+        assertEquals("5", window.takeStale(6));
+        assertNull(window.takeStale(6));
+        assertEquals("6", window.takeAny());
+        assertNull(window.takeAny());
+    }
+}
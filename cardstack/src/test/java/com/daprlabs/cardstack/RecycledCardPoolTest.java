@@ -0,0 +1,50 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecycledCardPoolTest {
+
+    @Test
+    public void obtain_returnsCardOfSameType() throws Exception {
+        RecycledCardPool<String> pool = new RecycledCardPool<>(3);
+        pool.release(1, "card");
+
+        assertNull(pool.obtain(0));
+        assertEquals("card", pool.obtain(1));
+        assertNull(pool.obtain(1));
+    }
+
+    @Test
+    public void release_respectsLimitPerType() throws Exception {
+        RecycledCardPool<String> pool = new RecycledCardPool<>(2);
+
+        assertTrue(pool.release(0, "a"));
+        assertTrue(pool.release(0, "b"));
+        assertFalse(pool.release(0, "c"));
+        assertTrue(pool.release(1, "d"));
+        assertEquals(3, pool.getScrapCount());
+    }
+
+    @Test
+    public void release_ignoresNegativeViewTypes() throws Exception {
+        RecycledCardPool<String> pool = new RecycledCardPool<>(2);
+
+        assertFalse(pool.release(-1, "a"));
+        assertEquals(0, pool.getScrapCount());
+    }
+
+    @Test
+    public void onCardBound_countsRecycledAndInflated() throws Exception {
+        RecycledCardPool<String> pool = new RecycledCardPool<>(2);
+        String convertView = "card";
+
+        pool.onCardBound(null, "new");
+        pool.onCardBound(convertView, convertView);
+        pool.onCardBound(convertView, "other");
+
+        assertEquals(1, pool.getRecycledCount());
+        assertEquals(2, pool.getInflatedCount());
+    }
+}
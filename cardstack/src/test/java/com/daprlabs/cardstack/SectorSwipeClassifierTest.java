@@ -0,0 +1,78 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SectorSwipeClassifierTest {
+
+    private static final int WIDTH = 1000;
+
+    private SectorSwipeClassifier classifier;
+
+    @Before
+    public void setUp() throws Exception {
+        classifier = new SectorSwipeClassifier(100);
+    }
+
+    @Test
+    public void flingsAreClassifiedByTheirAngle() throws Exception {
+        assertEquals(SwipeDeck.SWIPE_RIGHT, classifier.classify(0, 0, 1000, 500, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_LEFT, classifier.classify(0, 0, -1000, -500, WIDTH));
+        //outside of both sectors
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(0, 0, 500, 1000, WIDTH));
+    }
+
+    @Test
+    public void upAndDown_areOffByDefault() throws Exception {
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(0, 0, 0, -1000, WIDTH));
+
+        classifier.setSectorAngle(SwipeDeck.SWIPE_UP, 45);
+        classifier.setSectorAngle(SwipeDeck.SWIPE_DOWN, 45);
+        assertEquals(SwipeDeck.SWIPE_UP, classifier.classify(0, 0, 100, -1000, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_DOWN, classifier.classify(0, 0, -100, 1000, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_RIGHT, classifier.classify(0, 0, 1000, 900, WIDTH));
+    }
+
+    @Test
+    public void overlappingSectors_goToTheCloserAxis() throws Exception {
+        classifier.setSectorAngle(SwipeDeck.SWIPE_DOWN, 80);
+        assertEquals(SwipeDeck.SWIPE_RIGHT, classifier.classify(0, 0, 1000, 900, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_DOWN, classifier.classify(0, 0, 900, 1000, WIDTH));
+    }
+
+    @Test
+    public void sectorEdges_matchTheirAngles() throws Exception {
+        //just inside and just outside of 30 degrees off the up axis, tan(30) = 0.577
+        classifier.setSectorAngle(SwipeDeck.SWIPE_UP, 30);
+        assertEquals(SwipeDeck.SWIPE_UP, classifier.directionOf(576, -1000));
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.directionOf(578, -1000));
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.directionOf(0, 1000));
+
+        //a right angle takes the whole half plane, but not the axis across it
+        classifier.setSectorAngle(SwipeDeck.SWIPE_RIGHT, 0);
+        classifier.setSectorAngle(SwipeDeck.SWIPE_DOWN, 90);
+        assertEquals(SwipeDeck.SWIPE_DOWN, classifier.directionOf(1000, 1));
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.directionOf(1000, 0));
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.directionOf(0, 0));
+    }
+
+    @Test
+    public void slowFling_fallsBackToTheDistance() throws Exception {
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(100, 0, 50, 0, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_LEFT, classifier.classify(-600, 50, -50, 0, WIDTH));
+    }
+
+    @Test
+    public void release_isCommittedPastTheCommitDistance() throws Exception {
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(499, 0, 0, 0, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_RIGHT, classifier.classify(500, 0, 0, 0, WIDTH));
+
+        classifier.setCommitFraction(0.25f);
+        assertEquals(SwipeDeck.SWIPE_RIGHT, classifier.classify(250, 100, 0, 0, WIDTH));
+        //far enough, but in no sector
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(300, 400, 0, 0, WIDTH));
+        assertEquals(SwipeDeck.SWIPE_NONE, classifier.classify(0, 0, 0, 0, WIDTH));
+    }
+}
@@ -0,0 +1,329 @@
+package com.daprlabs.cardstack;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Benchmarks of the deck's hot paths across deck and adapter sizes. Skipped unless the
+ * swipedeck.benchmark system property is set, see the testOptions in build.gradle.
+ * Results are written to the file named by swipedeck.benchmark.output as JSON lines, the file
+ * is emptied first so it only holds the results of one run.
+ * <p>
+ * These run on Robolectric, absolute numbers don't match a device but are comparable
+ * between two runs on the same machine.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipeDeckBenchmark {
+
+    private static final int[] MAX_VISIBLE = {3, 5, 10, 20};
+    private static final int[] ADAPTER_SIZES = {10, 1000, 100000};
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    private BenchmarkRunner runner;
+
+    @BeforeClass
+    public static void clearOutput() throws Exception {
+        String output = System.getProperty("swipedeck.benchmark.output");
+        if (!Boolean.getBoolean("swipedeck.benchmark") || output == null) {
+            return;
+        }
+        //every benchmark appends to it, results of earlier runs go
+        File file = new File(output);
+        file.getParentFile().mkdirs();
+        new FileWriter(file, false).close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Boolean.getBoolean("swipedeck.benchmark"));
+        runner = new BenchmarkRunner(200, 1000, System.getProperty("swipedeck.benchmark.output"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (runner != null) {
+            runner.close();
+        }
+    }
+
+    private static SwipeDeck newDeck(int maxVisible, int adapterSize) {
+        SwipeDeck deck = new SwipeDeck(RuntimeEnvironment.application, null);
+        deck.setMaxVisible(maxVisible);
+        deck.setAdapter(new TestCardAdapter(adapterSize));
+        layout(deck);
+        return deck;
+    }
+
+    private static void layout(SwipeDeck deck) {
+        deck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        deck.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static Map<String, Object> params(int maxVisible, int adapterSize) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("maxVisible", maxVisible);
+        params.put("adapterSize", adapterSize);
+        return params;
+    }
+
+    @Test
+    public void addAndMeasureChild() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                runner.run("addAndMeasureChild", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    private View card = new TestCardAdapter.TestCard(deck.getContext());
+
+                    @Override
+                    public void prepare() {
+                        //take out the card the previous run added
+                        deck.removeViewInLayout(card);
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.addAndMeasureChild(card);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * A layout pass with nothing changed about the deck, the cards only lay out their content.
+     */
+    @Test
+    public void onLayout() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                runner.run("onLayout", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void prepare() {
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.onLayout(false, 0, 0, WIDTH, HEIGHT);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * A layout pass after the deck changed, the cards are positioned and the top card set up again.
+     */
+    @Test
+    public void onLayoutDeckChanged() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                runner.run("onLayoutDeckChanged", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void prepare() {
+                        deck.invalidateDeckState();
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.onLayout(false, 0, 0, WIDTH, HEIGHT);
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void positionViews() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                runner.run("positionViews", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void prepare() {
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.positionViews();
+                    }
+                });
+            }
+        }
+    }
+
+    @Test
+    public void setupTopCard() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                runner.run("setupTopCard", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void prepare() {
+                        //a different card on top every run, setting up the same card again does nothing
+                        deck.bringChildToFront(deck.getChildAt(0));
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.setupTopCard();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Classifying a release, a fling or a drag in turns, with all four directions on.
+     */
+    @Test
+    public void classifySwipe() throws Exception {
+        final SectorSwipeClassifier classifier = new SectorSwipeClassifier(100);
+        classifier.setSectorAngle(SwipeDeck.SWIPE_UP, 30);
+        classifier.setSectorAngle(SwipeDeck.SWIPE_DOWN, 30);
+        runner.run("classifySwipe", new LinkedHashMap<String, Object>(), new BenchmarkRunner.Operation() {
+            private int release;
+            private float x;
+            private float y;
+            private int direction;
+
+            @Override
+            public void prepare() {
+                release++;
+                float angle = release * 0.1f;
+                x = (float) Math.cos(angle);
+                y = (float) Math.sin(angle);
+            }
+
+            @Override
+            public void run() {
+                direction = (release & 1) == 0
+                        ? classifier.classify(0, 0, 1000 * x, 1000 * y, WIDTH)
+                        : classifier.classify(WIDTH * x, WIDTH * y, 0, 0, WIDTH);
+            }
+        });
+    }
+
+    /**
+     * Replaying a recorded two finger drag into the drag tracker, the events param gives the
+     * number of events per operation to get the cost of one.
+     */
+    @Test
+    public void dragTrackerReplay() throws Exception {
+        final MotionTrace trace = new MotionTrace()
+                .down(0, 100, 400, 0)
+                .moveTo(0, 100, 400, 300, 380, 0, 400, 4)
+                .pointerDown(1, 200, 200, 404)
+                .moveTo(1, 200, 200, 400, 180, 404, 800, 4)
+                .pointerUp(1, 0, 300, 380, 804)
+                .moveTo(0, 300, 380, 440, 400, 804, 1000, 4)
+                .up(0, 440, 400, 1000);
+        final DragTracker tracker = new DragTracker(8);
+        final int[] results = new int[trace.size()];
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("events", trace.size());
+        runner.run("dragTrackerReplay", params, new BenchmarkRunner.Operation() {
+            @Override
+            public void prepare() {
+            }
+
+            @Override
+            public void run() {
+                trace.replay(tracker, results);
+            }
+        });
+    }
+
+    /**
+     * One frame of the deck's card animator with every visible card springing back. The springs
+     * are closed form, so a frame costs the same at any point of the animation.
+     */
+    @Test
+    public void animatorFrame() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            final SwipeDeck deck = newDeck(maxVisible, maxVisible);
+            final DeckAnimator<View> animator = deck.getCardAnimator();
+            runner.run("animatorFrame", params(maxVisible, maxVisible), new BenchmarkRunner.Operation() {
+                private long frameNanos;
+
+                @Override
+                public void prepare() {
+                    if (!animator.hasRunningAnimations()) {
+                        for (int i = 0; i < deck.getChildCount(); ++i) {
+                            View card = deck.getChildAt(i);
+                            card.setTranslationX(WIDTH / 2);
+                            card.setRotation(15);
+                            animator.animate(card, 0, 0, DeckAnimator.LINEAR, null)
+                                    .springTo(DeckAnimator.TRANSLATION_X, 0, DeckPhysics.RESET_STIFFNESS)
+                                    .springTo(DeckAnimator.ROTATION, 0, DeckPhysics.RESET_STIFFNESS);
+                        }
+                    }
+                    frameNanos += SwipeDeckMetrics.DEFAULT_FRAME_INTERVAL_NANOS;
+                }
+
+                @Override
+                public void run() {
+                    animator.doFrame(frameNanos);
+                }
+            });
+        }
+    }
+
+    /**
+     * A swipe from start to end: the card is swiped off with an instant exit animation, the
+     * animator runs the frame that ends it and recycles the card, and the deck pulls in the next
+     * card and lays out again. The length of the exit animation is left out, its timing under
+     * Robolectric says nothing about a device.
+     */
+    @Test
+    public void swipeCycle() throws Exception {
+        for (int maxVisible : MAX_VISIBLE) {
+            for (int adapterSize : ADAPTER_SIZES) {
+                final SwipeDeck deck = newDeck(maxVisible, adapterSize);
+                final DeckAnimator<View> animator = deck.getCardAnimator();
+                runner.run("swipeCycle", params(maxVisible, adapterSize), new BenchmarkRunner.Operation() {
+                    private long frameNanos;
+
+                    @Override
+                    public void prepare() {
+                        //start over once every card was swiped
+                        if (deck.getChildCount() == 0) {
+                            deck.setPosition(0);
+                            layout(deck);
+                        }
+                    }
+
+                    @Override
+                    public void run() {
+                        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+                        //the first frame starts the animations, the second one a second later ends them
+                        animator.doFrame(frameNanos);
+                        frameNanos += 1000 * 1000 * 1000L;
+                        animator.doFrame(frameNanos);
+                        layout(deck);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,1220 @@
+package com.daprlabs.cardstack;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SwipeDeckTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final long MILLIS = 1000000L;
+
+    private SwipeDeck deck;
+    private TestCardAdapter adapter;
+
+    @Before
+    public void setUp() throws Exception {
+        //animation frames only run when a test asks for them
+        ShadowLooper.pauseMainLooper();
+        deck = new SwipeDeck(RuntimeEnvironment.application, null);
+        setAdapter(2);
+    }
+
+    private void setAdapter(int count) {
+        adapter = new TestCardAdapter(count);
+        deck.setAdapter(adapter);
+        layoutDeck();
+    }
+
+    private void setStableAdapter(int count) {
+        adapter = new TestCardAdapter(count);
+        adapter.stableIds = true;
+        deck.setAdapter(adapter);
+        layoutDeck();
+    }
+
+    private View[] cards() {
+        View[] cards = new View[deck.getChildCount()];
+        for (int i = 0; i < cards.length; ++i) {
+            cards[i] = deck.getChildAt(i);
+        }
+        return cards;
+    }
+
+    private TestCardAdapter.TestCard card(int index) {
+        return (TestCardAdapter.TestCard) deck.getChildAt(index);
+    }
+
+    private TestCardAdapter.TestCard topCard() {
+        return card(deck.getChildCount() - 1);
+    }
+
+    private void layoutDeck() {
+        deck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        deck.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Let the main thread go idle until no idle handler asks to run again, Robolectric's looper
+     * never runs them by itself.
+     */
+    @SuppressWarnings("unchecked")
+    private static void runIdleHandlers() throws Exception {
+        MessageQueue queue = Looper.myQueue();
+        Field field = MessageQueue.class.getDeclaredField("mIdleHandlers");
+        field.setAccessible(true);
+        List<MessageQueue.IdleHandler> handlers = (List<MessageQueue.IdleHandler>) field.get(queue);
+        while (!handlers.isEmpty()) {
+            for (MessageQueue.IdleHandler handler : new ArrayList<>(handlers)) {
+                if (!handler.queueIdle()) {
+                    queue.removeIdleHandler(handler);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void addingCards_measuresOnlyTheNewCards() throws Exception {
+        int initialCards = deck.getChildCount();
+        assertTrue(initialCards > 0);
+        for (int i = 0; i < initialCards; ++i) {
+            assertEquals(1, card(i).measureCount);
+        }
+
+        final int[] added = new int[1];
+        final int[] removed = new int[1];
+        deck.setOnHierarchyChangeListener(new ViewGroup.OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                added[0]++;
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+                removed[0]++;
+            }
+        });
+
+        adapter.data.add("new 1");
+        adapter.data.add("new 2");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        int newCards = deck.getChildCount() - initialCards;
+        assertTrue(newCards > 0);
+        assertEquals(newCards, added[0]);
+        assertEquals(0, removed[0]);
+        for (int i = 0; i < deck.getChildCount(); ++i) {
+            assertEquals(1, card(i).measureCount);
+        }
+    }
+
+    @Test
+    public void newCards_goToTheBottomOfTheDeck() throws Exception {
+        View topCard = deck.getChildAt(deck.getChildCount() - 1);
+
+        adapter.data.add("new");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertSame(topCard, deck.getChildAt(deck.getChildCount() - 1));
+        assertEquals("new", card(0).item);
+    }
+
+    @Test
+    public void resizing_remeasuresCards() throws Exception {
+        deck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH / 2, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        deck.layout(0, 0, WIDTH / 2, HEIGHT);
+
+        View card = deck.getChildAt(0);
+        assertEquals(WIDTH / 2 - deck.getPaddingLeft() - deck.getPaddingRight(), card.getMeasuredWidth());
+    }
+
+    @Test
+    public void repeatedLayouts_doNotRestartAnimationsOrRecreateListeners() throws Exception {
+        setAdapter(10);
+        View.OnTouchListener listener = shadowOf(topCard()).getOnTouchListener();
+        assertNotNull(listener);
+        int animationCount = deck.getCardAnimator().getAnimationCount();
+
+        for (int i = 0; i < 5; ++i) {
+            deck.requestLayout();
+            layoutDeck();
+        }
+
+        assertSame(listener, shadowOf(topCard()).getOnTouchListener());
+        assertEquals(animationCount, deck.getCardAnimator().getAnimationCount());
+    }
+
+    @Test
+    public void layoutWithNewSize_repositionsCards() throws Exception {
+        setAdapter(10);
+        int animationCount = deck.getCardAnimator().getAnimationCount();
+
+        deck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH / 2, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        deck.layout(0, 0, WIDTH / 2, HEIGHT);
+
+        assertEquals(animationCount + deck.getChildCount(), deck.getCardAnimator().getAnimationCount());
+    }
+
+    @Test
+    public void newTopCard_reusesTheSameSwipeListener() throws Exception {
+        setAdapter(10);
+        View oldTopCard = topCard();
+        View.OnTouchListener listener = shadowOf(oldTopCard).getOnTouchListener();
+
+        deck.setPosition(5);
+        layoutDeck();
+
+        assertNotSame(oldTopCard, topCard());
+        assertNull(shadowOf(oldTopCard).getOnTouchListener());
+        assertSame(listener, shadowOf(topCard()).getOnTouchListener());
+    }
+
+    @Test
+    public void permanentLayers_backEveryCard() throws Exception {
+        deck.setLayerMode(SwipeDeck.LAYER_MODE_PERMANENT);
+        setAdapter(10);
+
+        assertEquals(deck.getChildCount(), deck.getActiveLayerCount());
+    }
+
+    @Test
+    public void managedLayers_leaveIdleCardsWithoutLayers() throws Exception {
+        deck.setLayerMode(SwipeDeck.LAYER_MODE_MANAGED);
+        setAdapter(10);
+
+        assertTrue(deck.getChildCount() > 1);
+        assertEquals(0, deck.getActiveLayerCount());
+    }
+
+    @Test
+    public void managedLayers_backTheDraggedCardUntilItIsBackInPlace() throws Exception {
+        deck.setLayerMode(SwipeDeck.LAYER_MODE_MANAGED);
+        setAdapter(10);
+        View card = topCard();
+
+        touch(card, MotionEvent.ACTION_DOWN, 10, 0);
+        assertEquals(0, deck.getActiveLayerCount());
+        for (int i = 1; i <= 5; ++i) {
+            touch(card, MotionEvent.ACTION_MOVE, 10 + i * 10, i * 100);
+        }
+        assertEquals(1, deck.getActiveLayerCount());
+
+        //let go slowly and not far, the card springs back and gives up its layer once it is there
+        touch(card, MotionEvent.ACTION_UP, 60, 1000);
+        assertEquals(0, deck.getTopCardPosition());
+        assertEquals(1, deck.getActiveLayerCount());
+        DeckAnimator<View> animator = deck.getCardAnimator();
+        animator.doFrame(0);
+        animator.doFrame(2000 * MILLIS);
+        assertEquals(0, deck.getActiveLayerCount());
+    }
+
+    @Test
+    public void managedLayers_backTheSwipedCardUntilItIsOffScreen() throws Exception {
+        deck.setLayerMode(SwipeDeck.LAYER_MODE_MANAGED);
+        setAdapter(10);
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        assertEquals(1, deck.getActiveLayerCount());
+
+        DeckAnimator<View> animator = deck.getCardAnimator();
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+        assertEquals(1, deck.getActiveLayerCount());
+        animator.doFrame(1000 * MILLIS);
+        assertEquals(0, deck.getActiveLayerCount());
+    }
+
+    @Test
+    public void replacingTheAdapter_releasesLayers() throws Exception {
+        deck.setLayerMode(SwipeDeck.LAYER_MODE_PERMANENT);
+        setAdapter(10);
+
+        deck.setAdapter(new TestCardAdapter(0));
+        layoutDeck();
+
+        assertEquals(0, deck.getChildCount());
+        assertEquals(0, deck.getActiveLayerCount());
+    }
+
+    @Test
+    public void metrics_recordCardAndLayoutTimes() throws Exception {
+        SwipeDeckMetrics metrics = new SwipeDeckMetrics();
+        deck.setMetrics(metrics);
+        setAdapter(10);
+
+        assertEquals(deck.getChildCount(), metrics.getGetViewTimes().getCount());
+        assertEquals(deck.getChildCount(), metrics.getMeasureTimes().getCount());
+        assertTrue(metrics.getLayoutTimes().getCount() > 0);
+    }
+
+    @Test
+    public void metrics_recordSwipeToReadyOnTheLayoutAfterTheSwipe() throws Exception {
+        SwipeDeckMetrics metrics = new SwipeDeckMetrics();
+        deck.setMetrics(metrics);
+        setAdapter(10);
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        assertEquals(0, metrics.getSwipeToReadyTimes().getCount());
+
+        layoutDeck();
+        layoutDeck();
+        assertEquals(1, metrics.getSwipeToReadyTimes().getCount());
+    }
+
+    @Test
+    public void firstCard_isTheFirstItemOfTheAdapter() throws Exception {
+        setAdapter(10);
+
+        assertEquals("0", topCard().item);
+        assertEquals(0, deck.getTopCardPosition());
+        assertEquals("2", card(0).item);
+    }
+
+    @Test
+    public void swipingTheTopCard_advancesThePosition() throws Exception {
+        setAdapter(10);
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        deck.getCardAnimator().doFrame(0);
+        deck.getCardAnimator().doFrame(1000 * MILLIS);
+        layoutDeck();
+
+        assertEquals(1, deck.getTopCardPosition());
+        assertEquals("1", topCard().item);
+        assertEquals("3", card(0).item);
+    }
+
+    @Test
+    public void endlessAdapter_stopsAtTheEndOfTheDataAndContinuesOnInsert() throws Exception {
+        EndlessTestAdapter endless = new EndlessTestAdapter(2);
+        deck.setAdapter(endless);
+        layoutDeck();
+        assertEquals(2, deck.getChildCount());
+
+        endless.data.add("2");
+        endless.data.add("3");
+        deck.notifyItemRangeInserted(2, 2);
+        layoutDeck();
+
+        assertEquals(3, deck.getChildCount());
+        assertEquals("2", card(0).item);
+        assertEquals(0, endless.getCountCalls);
+    }
+
+    @Test
+    public void endlessAdapter_prefetchesAgainAfterAPageIsAppended() throws Exception {
+        EndlessTestAdapter endless = new EndlessTestAdapter(6);
+        deck.setMaxVisible(3);
+        deck.setAdapter(endless);
+        deck.setPrefetchDepth(2);
+        layoutDeck();
+        runIdleHandlers();
+        assertEquals(2, deck.getPrefetchedCardCount());
+
+        for (int i = 6; i < 10; ++i) {
+            endless.data.add(String.valueOf(i));
+        }
+        deck.notifyItemRangeInserted(6, 4);
+        layoutDeck();
+        runIdleHandlers();
+        assertEquals(2, deck.getPrefetchedCardCount());
+
+        endless.data.remove(9);
+        deck.notifyItemRangeRemoved(9, 1);
+        layoutDeck();
+        runIdleHandlers();
+        assertEquals(2, deck.getPrefetchedCardCount());
+    }
+
+    @Test
+    public void insertingBelowTheDeck_keepsTheCards() throws Exception {
+        setAdapter(10);
+        View[] cards = new View[deck.getChildCount()];
+        for (int i = 0; i < cards.length; ++i) {
+            cards[i] = card(i);
+        }
+        int getViewCount = adapter.getViewCount;
+
+        adapter.data.add("new");
+        deck.notifyItemRangeInserted(10, 1);
+        layoutDeck();
+
+        assertEquals(getViewCount, adapter.getViewCount);
+        for (int i = 0; i < cards.length; ++i) {
+            assertSame(cards[i], card(i));
+        }
+    }
+
+    @Test
+    public void insertingIntoTheDeck_replacesOnlyTheCardsBelow() throws Exception {
+        setAdapter(10);
+        View oldTopCard = topCard();
+
+        adapter.data.add(1, "new");
+        deck.notifyItemRangeInserted(1, 1);
+        layoutDeck();
+
+        assertSame(oldTopCard, topCard());
+        assertEquals("new", card(1).item);
+        assertEquals("1", card(0).item);
+    }
+
+    @Test
+    public void insertingAboveTheTopCard_shiftsThePosition() throws Exception {
+        setAdapter(10);
+        deck.setPosition(2);
+        layoutDeck();
+        View oldTopCard = topCard();
+
+        adapter.data.add(1, "new");
+        deck.notifyItemRangeInserted(1, 1);
+        layoutDeck();
+
+        assertSame(oldTopCard, topCard());
+        assertEquals("2", topCard().item);
+        assertEquals(3, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void insertingAtTheTopCard_showsTheNewItemOnTop() throws Exception {
+        setAdapter(10);
+        int inflated = deck.getInflatedCardCount();
+
+        adapter.data.add(0, "new");
+        deck.notifyItemRangeInserted(0, 1);
+        layoutDeck();
+
+        assertEquals("new", topCard().item);
+        assertEquals(0, deck.getTopCardPosition());
+        assertEquals("0", card(deck.getChildCount() - 2).item);
+        //the cards that were there are reused for the new window
+        assertEquals(inflated, deck.getInflatedCardCount());
+    }
+
+    @Test
+    public void shrinkingTheAdapter_dropsCardsPastTheEnd() throws Exception {
+        setAdapter(10);
+        adapter.data.subList(2, 10).clear();
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertEquals(2, deck.getChildCount());
+        assertEquals("1", card(0).item);
+    }
+
+    @Test
+    public void invalidatedAdapter_keepsThePosition() throws Exception {
+        setAdapter(10);
+        deck.setPosition(4);
+        layoutDeck();
+
+        adapter.notifyDataSetInvalidated();
+        layoutDeck();
+
+        assertEquals(4, deck.getTopCardPosition());
+        assertEquals("4", topCard().item);
+    }
+
+    @Test
+    public void refreshWithUnchangedIds_inflatesNothing() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+        int getViewCount = adapter.getViewCount;
+        int inflateCount = adapter.inflateCount;
+
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+        adapter.notifyDataSetInvalidated();
+        layoutDeck();
+
+        //every kept card is bound again, into itself
+        assertEquals(getViewCount + 2 * cards.length, adapter.getViewCount);
+        assertEquals(inflateCount, adapter.inflateCount);
+        assertArrayEquals(cards, cards());
+    }
+
+    @Test
+    public void refreshWithAnItemChangedUnderTheSameId_showsTheNewContent() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+        int inflateCount = adapter.inflateCount;
+
+        adapter.data.set(1, "changed");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertEquals(inflateCount, adapter.inflateCount);
+        assertArrayEquals(cards, cards());
+        assertEquals("changed", card(1).item);
+    }
+
+    @Test
+    public void refreshWithAReplacedItem_replacesOnlyThatCard() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+        int inflateCount = adapter.inflateCount;
+
+        adapter.data.remove(1);
+        adapter.data.add(1, "new");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        //the card of the removed item goes back to the pool and comes back for the new one
+        assertEquals(inflateCount, adapter.inflateCount);
+        assertSame(cards[0], card(0));
+        assertSame(cards[2], card(2));
+        assertEquals("new", card(1).item);
+    }
+
+    @Test
+    public void refreshWithItemsAboveTheDeck_keepsTheTopCard() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+
+        adapter.data.add(0, "new 1");
+        adapter.data.add(0, "new 2");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertEquals(2, deck.getTopCardPosition());
+        assertArrayEquals(cards, cards());
+    }
+
+    @Test
+    public void refreshWithoutTheTopItem_promotesTheNextCard() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+        int getViewCount = adapter.getViewCount;
+
+        adapter.data.remove(0);
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertEquals(0, deck.getTopCardPosition());
+        assertSame(cards[1], topCard());
+        assertSame(cards[0], card(1));
+        assertEquals("3", card(0).item);
+        //the two kept cards are bound again, the new bottom card comes from the pool
+        assertEquals(getViewCount + 3, adapter.getViewCount);
+        assertNotNull(shadowOf(topCard()).getOnTouchListener());
+    }
+
+    @Test
+    public void reloadedAdapterWithTheSameIds_keepsTheCards() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+
+        setStableAdapter(10);
+
+        //bound by the new adapter, nothing inflated
+        assertEquals(cards.length, adapter.getViewCount);
+        assertEquals(0, adapter.inflateCount);
+        assertArrayEquals(cards, cards());
+    }
+
+    @Test
+    public void setPositionWithStableIds_keepsCardsStillOnTheDeck() throws Exception {
+        setStableAdapter(10);
+        View[] cards = cards();
+        int getViewCount = adapter.getViewCount;
+
+        deck.setPosition(1);
+        layoutDeck();
+
+        assertSame(cards[1], topCard());
+        assertSame(cards[0], card(1));
+        assertEquals(getViewCount + 1, adapter.getViewCount);
+    }
+
+    @Test
+    public void swipeTopCard_reportsAndRemovesTheTopCard() throws Exception {
+        setAdapter(10);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View oldTopCard = topCard();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 100);
+        assertEquals("[right 0]", callback.events.toString());
+        assertNull(shadowOf(oldTopCard).getOnTouchListener());
+
+        deck.onExitAnimationEnd(oldTopCard);
+        layoutDeck();
+
+        assertEquals(1, deck.getTopCardPosition());
+        assertEquals("1", topCard().item);
+        assertNotNull(shadowOf(topCard()).getOnTouchListener());
+    }
+
+    @Test
+    public void swipeTopCard_putsTheNextCardOnTopRightAway() throws Exception {
+        setAdapter(10);
+        View oldTopCard = topCard();
+        View next = card(deck.getChildCount() - 2);
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+
+        assertSame(next, topCard());
+        assertNotNull(shadowOf(next).getOnTouchListener());
+        assertEquals(1, deck.getTopCardPosition());
+        //still drawn by the deck until its animation is done
+        assertSame(deck, oldTopCard.getParent());
+
+        deck.onExitAnimationEnd(oldTopCard);
+        assertNull(oldTopCard.getParent());
+    }
+
+    @Test
+    public void snapshotExit_recyclesTheCardRightAway() throws Exception {
+        RecycledCardPool<View> pool = new RecycledCardPool<>(3);
+        deck.setRecycledCardPool(pool);
+        deck.setExitMode(SwipeDeck.EXIT_MODE_SNAPSHOT);
+        setAdapter(10);
+        View oldTopCard = topCard();
+        int scrapCount = pool.getScrapCount();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+
+        assertNull(oldTopCard.getParent());
+        assertEquals(scrapCount + 1, pool.getScrapCount());
+        assertEquals(1, deck.getExitingSnapshotCount());
+        assertEquals(1, deck.getTopCardPosition());
+        //the next card to come onto the deck reuses the swiped one
+        layoutDeck();
+        assertSame(oldTopCard, deck.getChildAt(0));
+    }
+
+    @Test
+    public void occlusionCulling_onlyDrawsTheCardsThatCanBeSeen() throws Exception {
+        deck.setOcclusionCulling(true);
+        setAdapter(10);
+        int cardCount = deck.getChildCount();
+        assertTrue(cardCount > 1);
+
+        //the cards sit on top of each other until they are spread out
+        deck.dispatchDraw(new android.graphics.Canvas());
+        assertEquals(cardCount - 1, deck.getCulledCardCount());
+        assertEquals(1, topCard().drawCount);
+        for (int i = 0; i < cardCount - 1; ++i) {
+            assertEquals(0, card(i).drawCount);
+        }
+
+        DeckAnimator<View> animator = deck.getCardAnimator();
+        animator.doFrame(0);
+        animator.doFrame(500 * MILLIS);
+        deck.dispatchDraw(new android.graphics.Canvas());
+        assertEquals(0, deck.getCulledCardCount());
+        for (int i = 0; i < cardCount; ++i) {
+            assertEquals(i == cardCount - 1 ? 2 : 1, card(i).drawCount);
+        }
+
+        //without culling every card is drawn every time
+        deck.setOcclusionCulling(false);
+        animator.animate(topCard(), 0, 0, DeckAnimator.LINEAR, null).to(DeckAnimator.TRANSLATION_Y, 0);
+        deck.dispatchDraw(new android.graphics.Canvas());
+        assertEquals(0, deck.getCulledCardCount());
+        assertEquals(2, card(0).drawCount);
+    }
+
+    @Test
+    public void shadowBudget_onlyRaisesTheTopCards() throws Exception {
+        deck.setMaxVisible(4);
+        setAdapter(10);
+        View bottom = card(0);
+        bottom.setElevation(4);
+        deck.setShadowBudget(2);
+
+        assertEquals(20, topCard().getTranslationZ(), 0);
+        assertEquals(10, card(2).getTranslationZ(), 0);
+        assertEquals(0, card(1).getTranslationZ(), 0);
+        //cards past the budget don't keep an elevation of their own either
+        assertEquals(0, bottom.getZ(), 0);
+
+        //the deck draws one shadow for them instead
+        deck.dispatchDraw(new android.graphics.Canvas());
+        assertEquals(1, deck.getDeckShadowDrawCount());
+        //with every card in the budget there is nothing left to draw it for
+        deck.setShadowBudget(4);
+        deck.dispatchDraw(new android.graphics.Canvas());
+        assertEquals(1, deck.getDeckShadowDrawCount());
+    }
+
+    @Test
+    public void shadowBudget_swipeOnlyUpdatesTheCardsMovingIntoTheBudget() throws Exception {
+        deck.setMaxVisible(5);
+        deck.setShadowBudget(2);
+        setAdapter(10);
+        TestCardAdapter.TestCard[] kept = new TestCardAdapter.TestCard[4];
+        int[] changes = new int[kept.length];
+        for (int i = 0; i < kept.length; ++i) {
+            kept[i] = card(i);
+            changes[i] = kept[i].translationZChangeCount;
+        }
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        layoutDeck();
+
+        //the card below the top one and the one below that move up
+        assertEquals(changes[3] + 1, kept[3].translationZChangeCount);
+        assertEquals(20, kept[3].getTranslationZ(), 0);
+        assertEquals(changes[2] + 1, kept[2].translationZChangeCount);
+        assertEquals(10, kept[2].getTranslationZ(), 0);
+        assertEquals(changes[1], kept[1].translationZChangeCount);
+        assertEquals(changes[0], kept[0].translationZChangeCount);
+        assertEquals(0, card(0).getTranslationZ(), 0);
+    }
+
+    @Test
+    public void snapshotExit_animatesTheSnapshotOffTheDeck() throws Exception {
+        deck.setExitMode(SwipeDeck.EXIT_MODE_SNAPSHOT);
+        setAdapter(10);
+        DeckAnimator<View> animator = deck.getCardAnimator();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 100);
+        animator.doFrame(0);
+        animator.doFrame(50 * MILLIS);
+        assertEquals(1, deck.getExitingSnapshotCount());
+        deck.dispatchDraw(new android.graphics.Canvas());
+
+        animator.doFrame(100 * MILLIS);
+        assertEquals(0, deck.getExitingSnapshotCount());
+        //the snapshot is the only thing that left the deck
+        assertEquals(1, deck.getTopCardPosition());
+        assertEquals(0, deck.getRecycledCardCount());
+    }
+
+    @Test
+    public void maxVisible_isPerDeck() throws Exception {
+        SwipeDeck other = new SwipeDeck(RuntimeEnvironment.application, null);
+        other.setMaxVisible(5);
+        deck.setMaxVisible(2);
+        setAdapter(10);
+        other.setAdapter(new TestCardAdapter(10));
+        other.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        other.layout(0, 0, WIDTH, HEIGHT);
+
+        assertEquals(2, deck.getChildCount());
+        assertEquals(5, other.getChildCount());
+    }
+
+    @Test
+    public void sharedPool_inflatesCardsForTheDecksOnScreenOnly() throws Exception {
+        RecycledCardPool<View> pool = new RecycledCardPool<>(3);
+        TestCardAdapter feedAdapter = new TestCardAdapter(10);
+        //twenty decks scroll by one after the other, two on screen at a time
+        List<SwipeDeck> onScreen = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            SwipeDeck feedDeck = new SwipeDeck(RuntimeEnvironment.application, null);
+            feedDeck.setRecycledCardPool(pool);
+            feedDeck.setAdapter(feedAdapter);
+            feedDeck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            feedDeck.layout(0, 0, WIDTH, HEIGHT);
+            assertEquals(3, feedDeck.getChildCount());
+            onScreen.add(feedDeck);
+            if (onScreen.size() > 2) {
+                onScreen.remove(0).onDetachedFromWindow();
+            }
+        }
+
+        assertEquals(9, feedAdapter.inflateCount);
+        assertEquals(9, pool.getInflatedCount());
+        assertEquals(60 - 9, pool.getRecycledCount());
+    }
+
+    @Test
+    public void sharedPool_cardsComeBackWhenTheDeckIsAttachedAgain() throws Exception {
+        RecycledCardPool<View> pool = new RecycledCardPool<>(3);
+        deck.setRecycledCardPool(pool);
+        setAdapter(10);
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        layoutDeck();
+
+        deck.onDetachedFromWindow();
+        assertEquals(0, deck.getChildCount());
+        assertEquals(3, pool.getScrapCount());
+
+        deck.onAttachedToWindow();
+        assertTrue(deck.isLayoutRequested());
+        layoutDeck();
+        assertEquals(3, deck.getChildCount());
+        assertEquals(0, pool.getScrapCount());
+        assertEquals("1", topCard().item);
+    }
+
+    @Test
+    public void prefetch_buildsTheNextCardsWhileIdleAndSwipesTakeThem() throws Exception {
+        deck.setMaxVisible(3);
+        setAdapter(10);
+        deck.setPrefetchDepth(2);
+        int inflateCount = adapter.inflateCount;
+
+        //nothing is built until the main thread goes idle, then the two cards past the deck are
+        runIdleHandlers();
+        assertEquals(inflateCount + 2, adapter.inflateCount);
+        assertEquals(3, deck.getChildCount());
+
+        //the card pulled in after a swipe was built already, as was the one after it
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        layoutDeck();
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        layoutDeck();
+        assertEquals(inflateCount + 2, adapter.inflateCount);
+        assertEquals("2", topCard().item);
+        assertEquals("4", card(0).item);
+    }
+
+    @Test
+    public void contentPreloader_followsTheTopCard() throws Exception {
+        setAdapter(5);
+        final List<String> preloads = new ArrayList<>();
+        deck.setContentPreloader(new CardContentPreloader() {
+            @Override
+            public void preload(int topPosition, int count) {
+                preloads.add(topPosition + "+" + count);
+            }
+
+            @Override
+            public void invalidate() {
+                preloads.add("invalidate");
+            }
+        }, 3);
+        //a layout that doesn't move the top asks for nothing new
+        deck.requestLayout();
+        layoutDeck();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        assertEquals("[0+3, 1+3, 2+3, 3+2]", preloads.toString());
+    }
+
+    @Test
+    public void contentPreloader_startsOverWhenTheDataChanges() throws Exception {
+        setAdapter(5);
+        final List<String> preloads = new ArrayList<>();
+        deck.setContentPreloader(new CardContentPreloader() {
+            @Override
+            public void preload(int topPosition, int count) {
+                preloads.add(topPosition + "+" + count);
+            }
+
+            @Override
+            public void invalidate() {
+                preloads.add("invalidate");
+            }
+        }, 3);
+
+        adapter.data.add(1, "new");
+        deck.notifyItemRangeInserted(1, 1);
+        adapter.data.set(2, "changed");
+        deck.notifyItemRangeChanged(2, 1);
+        adapter.data.remove(4);
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        assertEquals("[0+3, invalidate, 0+3, invalidate, 0+3, invalidate, 0+3]", preloads.toString());
+    }
+
+    @Test
+    public void contentPreloader_keepsTheContentWhenItemsAreAppendedPastIt() throws Exception {
+        setAdapter(10);
+        DecodeAheadCache<String> cache = new DecodeAheadCache<>(new DecodeAheadCache.Decoder<String>() {
+            @Override
+            public String decode(int position) {
+                return adapter.data.get(position);
+            }
+
+            @Override
+            public int sizeOf(String value) {
+                return 1;
+            }
+        }, 100, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        deck.setContentPreloader(cache, 3);
+        assertEquals(3, cache.getDecodeCount());
+
+        adapter.data.add("10");
+        deck.notifyItemRangeInserted(10, 1);
+        layoutDeck();
+
+        assertEquals(3, cache.getDecodeCount());
+        assertEquals("0", cache.get(0));
+
+        //an insert into the window does start over
+        adapter.data.add(2, "new");
+        deck.notifyItemRangeInserted(2, 1);
+        assertEquals("new", cache.get(2));
+        assertEquals(6, cache.getDecodeCount());
+    }
+
+    @Test
+    public void dragPastHalfTheDeck_swipesTheCard() throws Exception {
+        setAdapter(10);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View card = topCard();
+        float startX = card.getX();
+
+        //the looper is paused, so the card stays put until it is let go
+        touch(card, MotionEvent.ACTION_DOWN, 10, 0);
+        for (int i = 1; i <= 10; ++i) {
+            touch(card, MotionEvent.ACTION_MOVE, 10 + i * 30, i * 16);
+        }
+        assertEquals(startX, card.getX(), 0);
+        assertEquals(0, callback.moveCount);
+        touch(card, MotionEvent.ACTION_UP, 310, 176);
+
+        assertEquals(startX + 300, card.getX(), 0.01f);
+        assertEquals(1, callback.moveCount);
+        assertEquals("[right 0]", callback.events.toString());
+        assertEquals(1, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void tap_clicksTheCard() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View card = topCard();
+
+        touch(card, MotionEvent.ACTION_DOWN, 10, 0);
+        touch(card, MotionEvent.ACTION_UP, 11, 50);
+        assertEquals("[click 0]", callback.events.toString());
+    }
+
+    @Test
+    public void dragOnAChildOfTheCard_isTakenOverPastTheSlop() throws Exception {
+        setAdapter(10);
+        RecordingParent parent = new RecordingParent();
+        parent.addView(deck);
+        View card = topCard();
+        float x = card.getX() + 10;
+        float y = card.getY() + 10;
+
+        //a child of the card took the down, the card's own listener never sees it
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, x, y, 0)));
+        assertEquals(Boolean.TRUE, parent.disallowIntercept);
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, x + 2, y, 16)));
+        assertTrue(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, x + 60, y, 32)));
+        assertEquals(Boolean.TRUE, parent.disallowIntercept);
+
+        //the rest of the gesture goes to the deck, fast enough to fling the card away
+        assertTrue(deck.onTouchEvent(event(MotionEvent.ACTION_UP, x + 60, y, 48)));
+        assertEquals(1, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void dragAlongAnAxisCardsAreNotSwipedOn_isLeftToTheParent() throws Exception {
+        setAdapter(10);
+        RecordingParent parent = new RecordingParent();
+        parent.addView(deck);
+        View card = topCard();
+        float x = card.getX() + 10;
+        float y = card.getY() + 10;
+
+        deck.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, x, y, 0));
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, x, y + 60, 16)));
+        assertEquals(Boolean.FALSE, parent.disallowIntercept);
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, x + 100, y + 60, 32)));
+    }
+
+    @Test
+    public void downOutsideTheTopCard_isNotTracked() throws Exception {
+        RecordingParent parent = new RecordingParent();
+        parent.addView(deck);
+        View card = topCard();
+
+        float below = card.getY() + card.getHeight() + 1;
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, card.getX() + 10, below, 0)));
+        assertFalse(deck.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, card.getX() + 100, below, 16)));
+        assertNull(parent.disallowIntercept);
+    }
+
+    private static MotionEvent event(int action, float x, float y, long timeMillis) {
+        return MotionEvent.obtain(0, timeMillis, action, x, y, 0);
+    }
+
+    private static void touch(View card, int action, float x, long timeMillis) {
+        MotionEvent event = MotionEvent.obtain(0, timeMillis, action, x, 10, 0);
+        card.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private static class RecordingParent extends FrameLayout {
+
+        Boolean disallowIntercept;
+
+        RecordingParent() {
+            super(RuntimeEnvironment.application);
+        }
+
+        @Override
+        public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+            this.disallowIntercept = disallowIntercept;
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        }
+    }
+
+    @Test
+    public void swipeUp_movesTheCardOffTheTop() throws Exception {
+        setAdapter(10);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View oldTopCard = topCard();
+        DeckAnimator<View> animator = deck.getCardAnimator();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_UP, 100);
+        animator.doFrame(0);
+        animator.doFrame(99 * MILLIS);
+
+        assertEquals("[up 0]", callback.events.toString());
+        assertTrue(oldTopCard.getY() + oldTopCard.getHeight() < 1);
+        assertEquals(0, oldTopCard.getRotation(), 0);
+        assertEquals(1, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void plainCallback_isOnlyToldAboutSideSwipes() throws Exception {
+        setAdapter(10);
+        final List<String> events = new ArrayList<>();
+        deck.setEventCallback(new SwipeDeck.SwipeEventCallback() {
+            @Override
+            public void onCardSwipedLeft(int position) {
+                events.add("left " + position);
+            }
+
+            @Override
+            public void onCardSwipedRight(int position) {
+                events.add("right " + position);
+            }
+
+            @Override
+            public void onCardsDepleted() {
+            }
+
+            @Override
+            public void onCardClicked(int position) {
+            }
+
+            @Override
+            public void onCardMove(float value) {
+            }
+        });
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_DOWN, 0);
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+
+        assertEquals("[left 1]", events.toString());
+        assertEquals(2, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void detachedDeck_stopsAnimatingUntilItIsBack() throws Exception {
+        setAdapter(10);
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        assertTrue(deck.isAnimationFrameScheduled());
+
+        deck.onDetachedFromWindow();
+        assertFalse(deck.isAnimationFrameScheduled());
+        assertTrue(deck.getCardAnimator().hasRunningAnimations());
+
+        deck.onAttachedToWindow();
+        assertTrue(deck.isAnimationFrameScheduled());
+    }
+
+    @Test
+    public void swipeCards_layoutOnceForTheWholeBatch() throws Exception {
+        setAdapter(100);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View[] cards = cards();
+        int getViewCount = adapter.getViewCount;
+
+        deck.swipeCards(20, SwipeDeck.SWIPE_LEFT);
+        assertEquals(20, callback.events.size());
+        assertEquals("left 19", callback.events.get(19));
+        assertEquals(0, deck.getChildCount());
+        assertEquals(20, deck.getTopCardPosition());
+        assertTrue(deck.isLayoutRequested());
+
+        layoutDeck();
+        assertEquals("20", topCard().item);
+        //the skipped positions never got a card
+        assertEquals(getViewCount + deck.getChildCount(), adapter.getViewCount);
+
+        for (View card : cards) {
+            deck.onExitAnimationEnd(card);
+            assertNull(card.getParent());
+        }
+        assertEquals("20", topCard().item);
+    }
+
+    @Test
+    public void swipeCards_stopsAtTheEndOfTheAdapter() throws Exception {
+        setAdapter(5);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View[] cards = cards();
+
+        deck.swipeCards(10, SwipeDeck.SWIPE_LEFT);
+        for (View card : cards) {
+            deck.onExitAnimationEnd(card);
+        }
+        layoutDeck();
+
+        assertEquals(5, callback.events.size());
+        assertEquals(0, deck.getChildCount());
+        assertEquals(1, callback.depletedCount);
+    }
+
+    @Test
+    public void swipesWhileCardsAreLeaving_continueBelowThem() throws Exception {
+        setAdapter(10);
+        RecordingCallback callback = new RecordingCallback();
+        deck.setEventCallback(callback);
+        View[] cards = cards();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 100);
+        deck.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 100);
+        assertEquals("[left 0, right 1]", callback.events.toString());
+
+        deck.onExitAnimationEnd(cards[2]);
+        deck.onExitAnimationEnd(cards[1]);
+        layoutDeck();
+
+        assertEquals(2, deck.getTopCardPosition());
+        assertSame(cards[0], card(deck.getChildCount() - 1));
+    }
+
+    @Test
+    public void swipeRight_movesTheCardToTheRight() throws Exception {
+        setAdapter(10);
+        View oldTopCard = topCard();
+        DeckAnimator<View> animator = deck.getCardAnimator();
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 100);
+        animator.doFrame(0);
+        animator.doFrame(90 * MILLIS);
+        assertTrue(oldTopCard.getX() > WIDTH / 2);
+        assertSame(deck, oldTopCard.getParent());
+
+        animator.doFrame(100 * MILLIS);
+        assertNull(oldTopCard.getParent());
+        assertEquals(1, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void swipeOnAttachedDeck_isDrivenByFrameCallbacks() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        deck = new SwipeDeck(activity, null);
+        activity.setContentView(deck);
+        setAdapter(10);
+
+        deck.swipeTopCard(SwipeDeck.SWIPE_RIGHT, 100);
+        ShadowLooper.idleMainLooper(500);
+
+        //the swiped card may be back on the deck already, recycled for another position
+        assertEquals(1, deck.getTopCardPosition());
+        assertEquals("1", topCard().item);
+        assertFalse(deck.getCardAnimator().hasRunningAnimations());
+    }
+
+    private static class RecordingCallback implements SwipeDeck.DirectionalSwipeEventCallback {
+
+        final List<String> events = new ArrayList<>();
+        int depletedCount;
+        int moveCount;
+
+        @Override
+        public void onCardSwipedLeft(int position) {
+            events.add("left " + position);
+        }
+
+        @Override
+        public void onCardSwipedRight(int position) {
+            events.add("right " + position);
+        }
+
+        @Override
+        public void onCardSwipedUp(int position) {
+            events.add("up " + position);
+        }
+
+        @Override
+        public void onCardSwipedDown(int position) {
+            events.add("down " + position);
+        }
+
+        @Override
+        public void onCardsDepleted() {
+            depletedCount++;
+        }
+
+        @Override
+        public void onCardClicked(int position) {
+            events.add("click " + position);
+        }
+
+        @Override
+        public void onCardMove(float value) {
+            moveCount++;
+        }
+    }
+
+    /**
+     * Adapter that only knows about the items loaded so far and counts calls to getCount.
+     */
+    private static class EndlessTestAdapter extends TestCardAdapter implements SwipeDeck.EndlessAdapter {
+
+        int getCountCalls;
+
+        EndlessTestAdapter(int count) {
+            super(count);
+        }
+
+        @Override
+        public int getCount() {
+            getCountCalls++;
+            return super.getCount();
+        }
+
+        @Override
+        public boolean hasItem(int position) {
+            return position < data.size();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.daprlabs.cardstack;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for deck tests that counts how often it is asked for cards and how often
+ * it had to build a new one. With stable ids every item gets its id when it is added, setting
+ * an item changes what it shows and keeps its id.
+ */
+public class TestCardAdapter extends BaseAdapter {
+
+    public final List<String> data = new ItemList();
+    //ids of the items in data, in the same order
+    private final List<Long> ids = new ArrayList<>();
+    private long nextId;
+    public int getViewCount;
+    public int inflateCount;
+    public boolean stableIds;
+
+    public TestCardAdapter(int count) {
+        for (int i = 0; i < count; ++i) {
+            data.add(String.valueOf(i));
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return data.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return data.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds ? ids.get(position) : position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return stableIds;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        getViewCount++;
+        TestCard card = (TestCard) convertView;
+        if (card == null) {
+            inflateCount++;
+            card = new TestCard(parent.getContext());
+            card.setLayoutParams(new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        card.item = data.get(position);
+        return card;
+    }
+
+    /**
+     * Keeps the ids in line with the items.
+     */
+    private class ItemList extends ArrayList<String> {
+
+        @Override
+        public boolean add(String item) {
+            ids.add(nextId++);
+            return super.add(item);
+        }
+
+        @Override
+        public void add(int index, String item) {
+            ids.add(index, nextId++);
+            super.add(index, item);
+        }
+
+        @Override
+        public String remove(int index) {
+            ids.remove(index);
+            return super.remove(index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            ids.subList(fromIndex, toIndex).clear();
+            super.removeRange(fromIndex, toIndex);
+        }
+
+        @Override
+        public void clear() {
+            ids.clear();
+            super.clear();
+        }
+    }
+
+    /**
+     * Card that counts how often the deck measures it.
+     */
+    public static class TestCard extends FrameLayout {
+
+        public String item;
+        public int measureCount;
+        public int drawCount;
+        public int translationZChangeCount;
+
+        public TestCard(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        public void setTranslationZ(float translationZ) {
+            if (translationZ != getTranslationZ()) {
+                translationZChangeCount++;
+            }
+            super.setTranslationZ(translationZ);
+        }
+
+        @Override
+        protected void dispatchDraw(Canvas canvas) {
+            drawCount++;
+            super.dispatchDraw(canvas);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.daprlabs.cardstack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VelocityEstimatorTest {
+
+    private static final float DELTA = 0.5f;
+
+    private VelocityEstimator estimator;
+
+    @Before
+    public void setUp() throws Exception {
+        estimator = new VelocityEstimator();
+    }
+
+    @Test
+    public void steadyDrag_givesItsVelocity() throws Exception {
+        //a 240Hz drag, more samples than the ring holds
+        for (int i = 0; i < 100; ++i) {
+            estimator.addSample(i * 4, 2 * i * 4, -0.5f * i * 4);
+        }
+        estimator.computeVelocity();
+        assertEquals(2000, estimator.getVelocityX(), DELTA);
+        assertEquals(-500, estimator.getVelocityY(), DELTA);
+    }
+
+    @Test
+    public void oldSamples_areLeftOut() throws Exception {
+        //fast at first, then a pause longer than the horizon before moving slowly
+        estimator.addSample(0, 0, 0);
+        estimator.addSample(10, 100, 0);
+        estimator.addSample(200, 100, 0);
+        estimator.addSample(250, 110, 0);
+        estimator.computeVelocity();
+        assertEquals(200, estimator.getVelocityX(), DELTA);
+    }
+
+    @Test
+    public void tooFewSamples_giveNoVelocity() throws Exception {
+        estimator.computeVelocity();
+        assertEquals(0, estimator.getVelocityX(), 0);
+
+        estimator.addSample(0, 10, 10);
+        estimator.computeVelocity();
+        assertEquals(0, estimator.getVelocityY(), 0);
+
+        estimator.addSample(0, 20, 20);
+        estimator.computeVelocity();
+        assertEquals(0, estimator.getVelocityX(), 0);
+
+        estimator.addSample(10, 30, 20);
+        estimator.computeVelocity();
+        assertTrue(estimator.getVelocityX() > 0);
+        estimator.clear();
+        assertEquals(0, estimator.getVelocityX(), 0);
+    }
+}
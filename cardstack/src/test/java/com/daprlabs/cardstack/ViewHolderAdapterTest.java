@@ -0,0 +1,212 @@
+package com.daprlabs.cardstack;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ViewHolderAdapterTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    private SwipeDeck deck;
+    private TestAdapter adapter;
+
+    @Before
+    public void setUp() throws Exception {
+        deck = new SwipeDeck(RuntimeEnvironment.application, null);
+        adapter = new TestAdapter(10);
+        deck.setViewHolderAdapter(adapter);
+        layoutDeck();
+    }
+
+    private void layoutDeck() {
+        deck.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        deck.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private String text(int index) {
+        return ((TextView) deck.getChildAt(index)).getText().toString();
+    }
+
+    private View topCard() {
+        return deck.getChildAt(deck.getChildCount() - 1);
+    }
+
+    @Test
+    public void cardsAreCreatedOnceAndBoundForEveryItem() throws Exception {
+        int cards = deck.getChildCount();
+        assertEquals(cards, adapter.createCount);
+        assertEquals(cards, adapter.bindCount);
+        assertEquals("0", text(cards - 1));
+
+        //the swiped card goes back to the pool once it is off screen, the next item reuses it
+        deck.swipeTopCard(SwipeDeck.SWIPE_LEFT, 0);
+        deck.getCardAnimator().doFrame(0);
+        deck.getCardAnimator().doFrame(1000 * 1000 * 1000L);
+        layoutDeck();
+
+        assertEquals(cards, adapter.createCount);
+        assertEquals(cards + 1, adapter.bindCount);
+        assertEquals("1", text(deck.getChildCount() - 1));
+    }
+
+    @Test
+    public void itemChanged_rebindsOnlyThatCard() throws Exception {
+        View top = topCard();
+        int bindCount = adapter.bindCount;
+
+        adapter.data.set(0, "changed");
+        adapter.notifyItemChanged(0);
+        layoutDeck();
+
+        assertSame(top, topCard());
+        assertEquals("changed", text(deck.getChildCount() - 1));
+        assertEquals(bindCount + 1, adapter.bindCount);
+        assertEquals(deck.getChildCount(), adapter.createCount);
+    }
+
+    @Test
+    public void itemChangedToAnotherViewType_replacesTheCard() throws Exception {
+        View top = topCard();
+
+        adapter.data.set(0, "big");
+        adapter.notifyItemChanged(0);
+        layoutDeck();
+
+        assertNotSame(top, topCard());
+        assertTrue(topCard() instanceof BigCard);
+    }
+
+    @Test
+    public void rangeInsertedBelowTheDeck_bindsNothing() throws Exception {
+        int bindCount = adapter.bindCount;
+
+        adapter.data.add("new");
+        adapter.notifyItemInserted(10);
+        layoutDeck();
+
+        assertEquals(bindCount, adapter.bindCount);
+    }
+
+    @Test
+    public void topItemRemoved_promotesTheNextCard() throws Exception {
+        View second = deck.getChildAt(deck.getChildCount() - 2);
+
+        adapter.data.remove(0);
+        adapter.notifyItemRemoved(0);
+        layoutDeck();
+
+        assertSame(second, topCard());
+        assertEquals(0, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void stableIds_keepCardsOnDataSetChanged() throws Exception {
+        adapter = new TestAdapter(10);
+        adapter.setHasStableIds(true);
+        deck.setViewHolderAdapter(adapter);
+        layoutDeck();
+        int bindCount = adapter.bindCount;
+        int createCount = adapter.createCount;
+
+        adapter.data.add(0, "new");
+        adapter.notifyDataSetChanged();
+        layoutDeck();
+
+        //kept cards are bound again in case their items changed, none are created
+        assertEquals(bindCount + deck.getChildCount(), adapter.bindCount);
+        assertEquals(createCount, adapter.createCount);
+        assertEquals(1, deck.getTopCardPosition());
+    }
+
+    @Test
+    public void legacyAdapter_replacesTheViewHolderAdapter() throws Exception {
+        TestCardAdapter legacy = new TestCardAdapter(10);
+        deck.setAdapter(legacy);
+        layoutDeck();
+
+        adapter.notifyItemChanged(0);
+        adapter.notifyItemRemoved(0);
+        layoutDeck();
+
+        assertEquals("0", ((TestCardAdapter.TestCard) topCard()).item);
+        assertEquals(deck.getChildCount(), legacy.getViewCount);
+    }
+
+    private static class BigCard extends FrameLayout {
+        BigCard(android.content.Context context) {
+            super(context);
+        }
+    }
+
+    private static class TestHolder extends SwipeDeck.ViewHolder {
+        TestHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    /**
+     * Items called "big" get their own view type.
+     */
+    private static class TestAdapter extends SwipeDeck.Adapter<TestHolder> {
+
+        final List<String> data = new ArrayList<>();
+        int createCount;
+        int bindCount;
+
+        TestAdapter(int count) {
+            for (int i = 0; i < count; ++i) {
+                data.add(String.valueOf(i));
+            }
+        }
+
+        @Override
+        public TestHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            createCount++;
+            View card = viewType == 1 ? new BigCard(parent.getContext()) : new TextView(parent.getContext());
+            card.setLayoutParams(new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            return new TestHolder(card);
+        }
+
+        @Override
+        public void onBindViewHolder(TestHolder holder, int position) {
+            bindCount++;
+            if (holder.itemView instanceof TextView) {
+                ((TextView) holder.itemView).setText(data.get(position));
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return data.size();
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return "big".equals(data.get(position)) ? 1 : 0;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return data.get(position).hashCode();
+        }
+    }
+}